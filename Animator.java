@@ -0,0 +1,93 @@
+// Ciclo central de animação com passo de tempo fixo
+// Em vez de cada animação criar o seu próprio javax.swing.Timer, todas se registam aqui como
+// "tweens": uma função que recebe o progresso (de 0 a 1) e desenha o estado correspondente.
+// Um único Timer faz avançar um relógio em passos fixos; o progresso de cada tween é calculado
+// pelo tempo decorrido (e não pelo número de frames), por isso várias animações podem correr
+// no mesmo passo e o ritmo mantém-se mesmo quando a thread do Swing está ocupada.
+import javax.swing.Timer;
+import java.util.ArrayList;
+import java.util.List;
+
+public final class Animator {
+    // Uma animação: recebe o progresso, de 0.0 (início) a 1.0 (fim)
+    public interface Tween {
+        void update(double progress);
+    }
+
+    private static final long MAX_CATCH_UP_NANOS = 250_000_000L; // Atraso máximo recuperado de uma vez (250ms)
+
+    // Animação em curso
+    private static final class Active {
+        final Tween tween;
+        final long start; // Instante do relógio em que começou
+        final long duration;
+        final Runnable onComplete;
+
+        Active(Tween tween, long start, long duration, Runnable onComplete) {
+            this.tween = tween;
+            this.start = start;
+            this.duration = duration;
+            this.onComplete = onComplete;
+        }
+    }
+
+    private final long stepNanos; // Duração de cada passo do relógio
+    private final Runnable beginFrame; // Chamado antes de atualizar os tweens (p. ex. repor o tabuleiro)
+    private final Runnable endFrame; // Chamado depois de atualizar os tweens (p. ex. pedir o redesenho)
+    private final Timer timer;
+    private final List<Active> active = new ArrayList<>();
+    private long clock = 0; // Tempo do relógio de animação, sempre múltiplo de stepNanos
+    private long lag = 0; // Tempo real ainda não convertido em passos
+    private long lastTick;
+
+    public Animator(int stepMillis, Runnable beginFrame, Runnable endFrame) {
+        this.stepNanos = stepMillis * 1_000_000L;
+        this.beginFrame = beginFrame;
+        this.endFrame = endFrame;
+        this.timer = new Timer(stepMillis, e -> tick());
+        this.timer.setCoalesce(true); // Se o Swing se atrasar, junta os eventos em vez de os acumular
+    }
+
+    // Regista uma animação com a duração indicada; onComplete (pode ser null) é chamado no fim
+    public void play(int durationMillis, Tween tween, Runnable onComplete) {
+        active.add(new Active(tween, clock, Math.max(1, durationMillis) * 1_000_000L, onComplete));
+        if (!timer.isRunning()) {
+            lastTick = System.nanoTime();
+            lag = 0;
+            timer.start();
+        }
+    }
+
+    // Um passo do Timer: avança o relógio em passos fixos e atualiza todas as animações
+    private void tick() {
+        long now = System.nanoTime();
+        lag = Math.min(lag + now - lastTick, MAX_CATCH_UP_NANOS);
+        lastTick = now;
+        long steps = lag / stepNanos;
+        if (steps == 0) return;
+        clock += steps * stepNanos;
+        lag -= steps * stepNanos;
+
+        // Mede o trabalho deste frame (evento JFR e GameMetrics); os passos a mais são ticks que se atrasaram
+        GameEvents.Frame event = new GameEvents.Frame();
+        event.begin();
+        event.steps = steps;
+        event.lateSteps = steps - 1;
+        event.tweens = active.size();
+        beginFrame.run();
+        // Os tweens registados por um onComplete são logo atualizados neste mesmo passo (com progresso 0)
+        for (int i = 0; i < active.size(); i++) {
+            Active a = active.get(i);
+            double progress = Math.min(1.0, (double) (clock - a.start) / a.duration);
+            a.tween.update(progress);
+            if (progress >= 1.0) {
+                active.remove(i--);
+                if (a.onComplete != null) a.onComplete.run();
+            }
+        }
+        endFrame.run();
+        event.commit();
+        GameMetrics.frame(System.nanoTime() - now, steps - 1);
+        if (active.isEmpty()) timer.stop();
+    }
+}
@@ -0,0 +1,111 @@
+// Carregamento das imagens e dos sons do jogo
+// Todos os ficheiros são procurados no classpath (pasta do projeto ou dentro do jar), nunca por
+// caminhos do disco. São lidos e descodificados em paralelo por threads próprias, logo no arranque,
+// enquanto a janela é criada e mostrada; quem precisa de um ficheiro recebe um CompletableFuture
+// e só espera por ele se ainda não estiver pronto (e nunca na thread do Swing).
+import javax.imageio.ImageIO;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public final class Assets {
+    public static final String EXPLOSION_IMAGE = "explosion/explosion.png";
+    private static final String GEMS_DIR = "gemsPNG/";
+    private static final int THREADS = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    private static final AtomicInteger threadCount = new AtomicInteger();
+    private static final ExecutorService LOADER = Executors.newFixedThreadPool(THREADS, r -> {
+        Thread t = new Thread(r, "assets-" + threadCount.incrementAndGet());
+        t.setDaemon(true); // Não impede o programa de terminar
+        return t;
+    });
+    private static final Map<String, CompletableFuture<BufferedImage>> IMAGES = new ConcurrentHashMap<>();
+    private static final Map<String, CompletableFuture<Sound>> SOUNDS = new ConcurrentHashMap<>();
+
+    // Um som já descodificado para memória (pronto a abrir em Clips)
+    public static final class Sound {
+        final AudioFormat format;
+        final byte[] data;
+
+        Sound(AudioFormat format, byte[] data) {
+            this.format = format;
+            this.data = data;
+        }
+    }
+
+    private Assets() {
+    }
+
+    // Começa a carregar todas as imagens e sons do jogo (pode ser chamado várias vezes)
+    public static void startLoading() {
+        for (GemType type : GemType.values()) {
+            gemImage(type);
+        }
+        image(EXPLOSION_IMAGE);
+        sound(SoundPlayer.SWAP);
+        sound(SoundPlayer.EXPLOSION);
+    }
+
+    public static CompletableFuture<BufferedImage> gemImage(GemType type) {
+        return image(GEMS_DIR + type.getImageFileName());
+    }
+
+    // Imagem descodificada (o resultado é null se o ficheiro não existir ou não puder ser lido)
+    public static CompletableFuture<BufferedImage> image(String path) {
+        return IMAGES.computeIfAbsent(path, p -> CompletableFuture.supplyAsync(() -> readImage(p), LOADER));
+    }
+
+    // Som descodificado (o resultado é null se o ficheiro não existir ou não puder ser lido)
+    public static CompletableFuture<Sound> sound(String path) {
+        return SOUNDS.computeIfAbsent(path, p -> CompletableFuture.supplyAsync(() -> readSound(p), LOADER));
+    }
+
+    // Procura um ficheiro no classpath (funciona tanto com as pastas como dentro do jar)
+    private static URL resource(String path) {
+        return Assets.class.getResource("/" + path);
+    }
+
+    private static BufferedImage readImage(String path) {
+        URL url = resource(path);
+        try {
+            if (url == null) throw new FileNotFoundException(path);
+            BufferedImage img = ImageIO.read(url);
+            if (img == null) throw new IOException("formato desconhecido");
+            return img;
+        } catch (Exception e) {
+            System.err.println("Não foi possível carregar a imagem " + path + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static Sound readSound(String path) {
+        URL url = resource(path);
+        if (url == null) return null; // O jogo funciona sem som
+        // AudioSystem precisa de um stream com mark/reset para reconhecer o formato
+        try (InputStream in = new BufferedInputStream(url.openStream());
+             AudioInputStream audioIn = AudioSystem.getAudioInputStream(in)) {
+            return new Sound(audioIn.getFormat(), audioIn.readAllBytes());
+        } catch (Exception e) {
+            System.err.println("Não foi possível carregar o som " + path + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Threads de carregamento, para preparar imagens derivadas (atlas, frames) fora da thread do Swing
+    static Executor loader() {
+        return LOADER;
+    }
+}
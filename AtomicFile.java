@@ -0,0 +1,57 @@
+// Substituição segura de um ficheiro: o conteúdo novo é escrito num ficheiro temporário na mesma
+// pasta e só depois, com um único "move" atómico, toma o lugar do antigo. Quem lê o ficheiro vê
+// sempre a versão antiga ou a nova inteira, nunca uma escrita a meio.
+// O ficheiro temporário é criado com as permissões normais de um ficheiro novo (e não só para o dono,
+// como faria Files.createTempFile) e, se o ficheiro antigo existir, recebe as permissões dele: assim
+// um ficheiro partilhado (p. ex. a tabela de recordes) continua legível pelos outros utilizadores.
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.concurrent.ThreadLocalRandom;
+
+final class AtomicFile {
+    private AtomicFile() {
+    }
+
+    // Substitui (ou cria) o ficheiro com os bytes restantes do buffer
+    static void write(Path file, ByteBuffer data) throws IOException {
+        Path temp = createTemp(file);
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                while (data.hasRemaining()) channel.write(data);
+                channel.force(true); // O conteúdo tem de estar no disco antes de o nome passar a apontar para ele
+            }
+            copyPermissions(file, temp);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    // Cria um ficheiro vazio com um nome novo ao lado do ficheiro indicado
+    private static Path createTemp(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        while (true) {
+            Path temp = parent.resolve(file.getFileName() + "." + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+            try {
+                return Files.createFile(temp);
+            } catch (FileAlreadyExistsException e) {
+                // Nome já usado: tenta outro
+            }
+        }
+    }
+
+    // Dá ao ficheiro novo as permissões do antigo (só em sistemas de ficheiros POSIX)
+    private static void copyPermissions(Path from, Path to) throws IOException {
+        PosixFileAttributeView source = Files.getFileAttributeView(from, PosixFileAttributeView.class);
+        if (source == null || !Files.exists(from)) return;
+        Files.setPosixFilePermissions(to, source.readAttributes().permissions());
+    }
+}
@@ -0,0 +1,228 @@
+// Jogador automático que escolhe as trocas procurando jogadas à frente
+// Usa "expectimax": nas jogadas escolhe a melhor troca (máximo) e, como as gemas novas de
+// fillEmptySpaces() são aleatórias, em cada troca faz a média de várias amostras do preenchimento.
+// O valor de uma troca são os pontos ganhos (10 por gema, como no jogo) mais o valor do tabuleiro
+// que fica, até à profundidade pedida.
+//
+// Para não repetir trabalho, os valores já calculados ficam numa tabela de transposição: cada
+// tabuleiro é identificado por um hash de Zobrist (XOR de um número aleatório fixo por posição e cor).
+// A tabela tem tamanho fixo; quando duas entradas caem no mesmo lugar, fica a mais recente ou a
+// mais profunda. As trocas da raiz são avaliadas em paralelo, e a tabela é partilhada sem locks:
+// cada entrada guarda a chave misturada (XOR) com os dados, por isso uma escrita a meio de outra
+// só dá uma falha na tabela, nunca um valor errado.
+//
+// Como executar (joga um jogo e mostra a pontuação):
+//   java AutoPlayer --seed 42 --moves 50 --depth 2 --samples 4
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+import java.util.stream.IntStream;
+
+public class AutoPlayer {
+    private static final long ZOBRIST_SEED = 0x5DEECE66DL; // Semente fixa dos números de Zobrist
+    private static final int DEPTH_BITS = 8; // Bits da entrada da tabela usados pela profundidade
+    private static final int AGE_BITS = 8; // Bits da entrada da tabela usados pela idade (número da procura)
+
+    private final int rows;
+    private final int cols;
+    private final int depth; // Número de trocas vistas à frente (1 = só a troca atual)
+    private final int samples; // Amostras do preenchimento aleatório em cada troca
+    private final boolean parallel; // Se true, as trocas da raiz são avaliadas em vários núcleos
+    private final long[] zobrist; // Um número aleatório por posição e cor
+    private final long[] depthKeys; // Misturados no hash para separar valores de profundidades diferentes
+    // Tabela de transposição: keys[i] = hash ^ data[i], para detetar entradas escritas a meio
+    private final long[] keys;
+    private final long[] data; // Valor (float), idade e profundidade de cada entrada
+    private final int mask;
+    private int age = 0; // Incrementada em cada procura: entradas antigas são as primeiras a sair
+    private long probes = 0; // Estatísticas da tabela (aproximadas quando a procura é paralela)
+    private long hits = 0;
+
+    // tableBits: a tabela tem 2^tableBits entradas (16 bytes cada)
+    public AutoPlayer(int rows, int cols, int depth, int samples, int tableBits, boolean parallel) {
+        if (depth < 1 || samples < 1 || tableBits < 1 || tableBits > 30) {
+            throw new IllegalArgumentException("Parâmetros de procura inválidos");
+        }
+        this.rows = rows;
+        this.cols = cols;
+        this.depth = depth;
+        this.samples = samples;
+        this.parallel = parallel;
+        SplittableRandom random = new SplittableRandom(ZOBRIST_SEED);
+        this.zobrist = new long[rows * cols * GemType.values().length];
+        for (int i = 0; i < zobrist.length; i++) {
+            zobrist[i] = random.nextLong();
+        }
+        this.depthKeys = new long[depth + 1];
+        for (int i = 0; i < depthKeys.length; i++) {
+            depthKeys[i] = random.nextLong();
+        }
+        this.keys = new long[1 << tableBits];
+        this.data = new long[1 << tableBits];
+        this.mask = (1 << tableBits) - 1;
+    }
+
+    // Escolhe a melhor troca para o tabuleiro atual (no formato de BoardEngine.findValidMoves),
+    // ou -1 se não houver jogadas possíveis. O tabuleiro não é alterado.
+    public int chooseMove(BoardEngine engine) {
+        if (engine.getRows() != rows || engine.getCols() != cols) {
+            throw new IllegalArgumentException("O tabuleiro tem dimensões diferentes");
+        }
+        age = (age + 1) & ((1 << AGE_BITS) - 1);
+        int[] moves = new int[rows * cols * 2];
+        int count = engine.findValidMoves(moves);
+        if (count == 0) return -1;
+        long hash = hash(engine);
+        IntStream indices = IntStream.range(0, count);
+        if (parallel) indices = indices.parallel();
+        // Cada tarefa tem os seus próprios tabuleiros de trabalho; só a tabela é partilhada
+        double[] values = new double[count];
+        indices.forEach(k -> values[k] = new Search(engine).expected(engine, hash, moves[k], depth));
+        int best = 0;
+        for (int k = 1; k < count; k++) {
+            if (values[k] > values[best]) best = k; // Em caso de empate fica a primeira (resultado reprodutível)
+        }
+        return moves[best];
+    }
+
+    // Percentagem de consultas à tabela que encontraram um valor já calculado
+    public double hitRate() {
+        return probes == 0 ? 0 : 100.0 * hits / probes;
+    }
+
+    // Hash de Zobrist do tabuleiro (as posições vazias não contam)
+    private long hash(BoardEngine engine) {
+        long h = 0;
+        int types = GemType.values().length;
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                byte code = engine.getCode(row, col);
+                if (code != BoardEngine.EMPTY) h ^= zobrist[(row * cols + col) * types + code];
+            }
+        }
+        return h;
+    }
+
+    // Procura o valor de um tabuleiro com a profundidade indicada; devolve NaN se não estiver na tabela
+    private double probe(long key, int remaining) {
+        probes++;
+        int i = (int) key & mask;
+        long d = data[i];
+        if ((keys[i] ^ d) != key || (d & ((1 << DEPTH_BITS) - 1)) != remaining) return Double.NaN;
+        hits++;
+        return Float.intBitsToFloat((int) (d >>> (DEPTH_BITS + AGE_BITS)));
+    }
+
+    // Guarda um valor na tabela; substitui a entrada existente se for de uma procura anterior
+    // ou se tiver profundidade menor ou igual (os valores mais profundos custam mais a calcular)
+    private void store(long key, int remaining, double value) {
+        int i = (int) key & mask;
+        long old = data[i];
+        int oldAge = (int) (old >>> DEPTH_BITS) & ((1 << AGE_BITS) - 1);
+        int oldDepth = (int) old & ((1 << DEPTH_BITS) - 1);
+        if (old != 0 && oldAge == age && oldDepth > remaining) return;
+        long d = ((long) Float.floatToRawIntBits((float) value) << (DEPTH_BITS + AGE_BITS))
+                | ((long) age << DEPTH_BITS) | remaining;
+        data[i] = d;
+        keys[i] = key ^ d;
+    }
+
+    // Estado de uma procura numa thread: um tabuleiro de trabalho (e o seu gerador) por nível
+    private final class Search {
+        private final BoardEngine[] boards = new BoardEngine[depth + 1];
+        private final ReseedableRandom[] randoms = new ReseedableRandom[depth + 1];
+        private final int[][] moves = new int[depth + 1][rows * cols * 2];
+
+        Search(BoardEngine engine) {
+            for (int level = 0; level <= depth; level++) {
+                randoms[level] = new ReseedableRandom();
+                boards[level] = new BoardEngine(rows, cols, randoms[level]);
+                boards[level].setSafeRefill(engine.isSafeRefill());
+            }
+        }
+
+        // Valor esperado de fazer a troca move no tabuleiro board (com hash hash):
+        // média, sobre várias amostras do preenchimento, dos pontos ganhos mais o valor do tabuleiro seguinte
+        double expected(BoardEngine board, long hash, int move, int remaining) {
+            BoardEngine next = boards[remaining];
+            double total = 0;
+            for (int s = 0; s < samples; s++) {
+                next.copyFrom(board);
+                // As amostras dependem só do tabuleiro e da troca, por isso o mesmo tabuleiro dá sempre o mesmo valor
+                randoms[remaining].setSeed(Simulator.mix64(hash ^ Simulator.mix64(move * (long) samples + s)));
+                next.swap(next.moveRow(move), next.moveCol(move), next.moveTargetRow(move), next.moveTargetCol(move));
+                double gain = next.resolveCascades() * BoardEngine.POINTS_PER_GEM;
+                if (remaining > 1) gain += value(next, remaining - 1);
+                total += gain;
+            }
+            return total / samples;
+        }
+
+        // Valor de um tabuleiro: o melhor valor esperado das trocas possíveis (0 se não houver nenhuma)
+        double value(BoardEngine board, int remaining) {
+            long h = hash(board);
+            long key = h ^ depthKeys[remaining];
+            double cached = probe(key, remaining);
+            if (!Double.isNaN(cached)) return cached;
+            int[] candidates = moves[remaining];
+            int count = board.findValidMoves(candidates);
+            double best = 0;
+            for (int k = 0; k < count; k++) {
+                best = Math.max(best, expected(board, h, candidates[k], remaining));
+            }
+            store(key, remaining, best);
+            return best;
+        }
+    }
+
+    // Gerador SplitMix64 cuja semente pode ser mudada (os tabuleiros de trabalho são reutilizados)
+    private static final class ReseedableRandom implements RandomGenerator {
+        private long state;
+
+        void setSeed(long seed) {
+            state = seed;
+        }
+
+        @Override
+        public long nextLong() {
+            return Simulator.mix64(state += 0x9e3779b97f4a7c15L);
+        }
+    }
+
+    public static void main(String[] args) {
+        long seed = 42;
+        int moves = 50, rows = 8, cols = 8, depth = 2, samples = 4, tableBits = 20;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--seed": seed = Long.parseLong(value); break;
+                case "--moves": moves = Integer.parseInt(value); break;
+                case "--rows": rows = Integer.parseInt(value); break;
+                case "--cols": cols = Integer.parseInt(value); break;
+                case "--depth": depth = Integer.parseInt(value); break;
+                case "--samples": samples = Integer.parseInt(value); break;
+                case "--table-bits": tableBits = Integer.parseInt(value); break;
+                default:
+                    System.err.println("Opção desconhecida: " + args[i]);
+                    System.exit(1);
+            }
+        }
+        AutoPlayer player = new AutoPlayer(rows, cols, depth, samples, tableBits, true);
+        BoardEngine engine = new BoardEngine(rows, cols, new SplittableRandom(seed));
+        engine.initBoard(true);
+        long start = System.nanoTime();
+        int played = 0;
+        while (played < moves) {
+            int move = player.chooseMove(engine);
+            if (move < 0) {
+                engine.shuffle(); // Como no jogo: sem jogadas possíveis, baralha e continua
+                continue;
+            }
+            engine.swap(engine.moveRow(move), engine.moveCol(move), engine.moveTargetRow(move), engine.moveTargetCol(move));
+            engine.resolveCascades();
+            played++;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Pontuação: %d em %d jogadas (%.1f ms por jogada, %.1f%% de acertos na tabela)%n",
+                engine.getScore(), played, seconds * 1000 / played, player.hitRate());
+    }
+}
@@ -0,0 +1,215 @@
+// Vista do tabuleiro desenhada "à mão" num único componente
+// Em vez de 64 botões, o tabuleiro é desenhado numa imagem de fundo (VolatileImage, que pode
+// ficar na memória da placa gráfica). Cada posição guarda o que mostra; quando muda, é marcada
+// como "suja" e só essas posições são redesenhadas na imagem e copiadas para o ecrã.
+// Não há gestores de layout nem revalidate(), por isso o custo de cada frame é pequeno.
+// Em tabuleiros grandes o componente fica dentro de um JScrollPane: a imagem de fundo tem só
+// o tamanho da parte visível e só as posições visíveis são desenhadas.
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.image.VolatileImage;
+
+public class BoardCanvas extends JComponent implements BoardView, Scrollable {
+    private static final Color BACKGROUND = new Color(0xEE, 0xEE, 0xEE); // Cor de fundo das posições
+    private static final Color GRID = new Color(0xB8, 0xCF, 0xE5); // Cor das linhas da grelha
+    private static final int SELECTION_WIDTH = 3; // Largura da moldura de seleção
+    private static final Stroke SELECTION_STROKE = new BasicStroke(SELECTION_WIDTH);
+    private static final Stroke GRID_STROKE = new BasicStroke(1);
+    private static final int MAX_VISIBLE_CELLS = 12; // Tamanho máximo (em posições) da área visível inicial
+
+    private final int rows;
+    private final int cols;
+    private final int cellSize;
+    private final Icon[] icons; // O que cada posição mostra (índice row * cols + col)
+    private final boolean[] selected; // Posições com moldura de seleção
+    private final boolean[] dirty; // Posições que mudaram e ainda não foram desenhadas na imagem
+    private final int[] dirtyList; // Índices das posições sujas (para não percorrer o tabuleiro todo)
+    private int dirtyCount = 0;
+    private boolean allDirty = true; // Quando a imagem é (re)criada ou a vista se desloca, tudo tem de ser desenhado
+    private VolatileImage buffer; // Imagem com a parte visível do tabuleiro desenhada
+    private final Rectangle bufferArea = new Rectangle(); // Zona do tabuleiro (em píxeis) que está na imagem
+
+    public BoardCanvas(int rows, int cols, int cellSize, ClickListener listener) {
+        this.rows = rows;
+        this.cols = cols;
+        this.cellSize = cellSize;
+        this.icons = new Icon[rows * cols];
+        this.selected = new boolean[rows * cols];
+        this.dirty = new boolean[rows * cols];
+        this.dirtyList = new int[rows * cols];
+        setPreferredSize(new Dimension(cols * cellSize, rows * cellSize));
+        setOpaque(true);
+        addMouseListener(new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                int row = e.getY() / cellSize, col = e.getX() / cellSize;
+                if (row >= 0 && row < rows && col >= 0 && col < cols) {
+                    listener.cellClicked(row, col);
+                }
+            }
+        });
+    }
+
+    public JComponent getComponent() {
+        return this;
+    }
+
+    public void setIcon(int row, int col, Icon icon) {
+        int i = row * cols + col;
+        if (icons[i] != icon) {
+            icons[i] = icon;
+            markDirty(i);
+        }
+    }
+
+    public void setSelected(int row, int col, boolean value) {
+        int i = row * cols + col;
+        if (selected[i] != value) {
+            selected[i] = value;
+            markDirty(i);
+        }
+    }
+
+    private void markDirty(int i) {
+        if (!dirty[i]) {
+            dirty[i] = true;
+            dirtyList[dirtyCount++] = i;
+        }
+    }
+
+    // Pede ao Swing para redesenhar apenas os retângulos das posições sujas que estão visíveis
+    public void flush() {
+        if (allDirty) {
+            repaint();
+            return;
+        }
+        Rectangle visible = getVisibleRect();
+        for (int k = 0; k < dirtyCount; k++) {
+            int i = dirtyList[k];
+            int x = (i % cols) * cellSize, y = (i / cols) * cellSize;
+            if (visible.intersects(x, y, cellSize, cellSize)) repaint(x, y, cellSize, cellSize);
+        }
+    }
+
+    public void repaintAll() {
+        allDirty = true;
+        repaint();
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        GraphicsConfiguration gc = getGraphicsConfiguration();
+        Rectangle visible = getVisibleRect();
+        if (gc == null || visible.isEmpty()) return; // Ainda não está num ecrã
+        // Mede cada desenho (evento JFR e GameMetrics)
+        GameEvents.Paint event = new GameEvents.Paint();
+        event.begin();
+        long start = System.nanoTime();
+        do {
+            // A imagem volátil pode ser perdida (p. ex. ao mudar de modo gráfico): nesse caso, redesenha tudo
+            int status = buffer == null ? VolatileImage.IMAGE_INCOMPATIBLE : buffer.validate(gc);
+            if (status == VolatileImage.IMAGE_INCOMPATIBLE
+                    || buffer.getWidth() != visible.width || buffer.getHeight() != visible.height) {
+                if (buffer != null) buffer.flush();
+                buffer = createVolatileImage(visible.width, visible.height);
+                allDirty = true;
+            } else if (status == VolatileImage.IMAGE_RESTORED) {
+                allDirty = true;
+            }
+            // Se a vista se deslocou, a imagem passa a mostrar outra zona do tabuleiro
+            if (!visible.equals(bufferArea)) {
+                bufferArea.setBounds(visible);
+                allDirty = true;
+            }
+            event.full |= allDirty;
+            event.cells += renderDirtyCells();
+            g.drawImage(buffer, bufferArea.x, bufferArea.y, null); // Só a zona de recorte (a que mudou) é copiada
+        } while (buffer.contentsLost());
+        event.commit();
+        GameMetrics.paint(System.nanoTime() - start);
+    }
+
+    // Desenha na imagem de fundo as posições que mudaram (só as visíveis) e devolve quantas desenhou
+    private int renderDirtyCells() {
+        int rendered = 0;
+        Graphics2D g2 = buffer.createGraphics();
+        try {
+            g2.translate(-bufferArea.x, -bufferArea.y);
+            if (allDirty) {
+                int firstRow = bufferArea.y / cellSize;
+                int lastRow = Math.min(rows - 1, (bufferArea.y + bufferArea.height - 1) / cellSize);
+                int firstCol = bufferArea.x / cellSize;
+                int lastCol = Math.min(cols - 1, (bufferArea.x + bufferArea.width - 1) / cellSize);
+                for (int row = firstRow; row <= lastRow; row++) {
+                    for (int col = firstCol; col <= lastCol; col++) {
+                        renderCell(g2, row * cols + col);
+                        rendered++;
+                    }
+                }
+                allDirty = false;
+            } else {
+                for (int k = 0; k < dirtyCount; k++) {
+                    int i = dirtyList[k];
+                    if (bufferArea.intersects((i % cols) * cellSize, (i / cols) * cellSize, cellSize, cellSize)) {
+                        renderCell(g2, i);
+                        rendered++;
+                    }
+                }
+            }
+            // As posições fora da zona visível também deixam de estar sujas: quando a vista
+            // se deslocar até elas, a zona nova é desenhada por inteiro
+            for (int k = 0; k < dirtyCount; k++) {
+                dirty[dirtyList[k]] = false;
+            }
+            dirtyCount = 0;
+        } finally {
+            g2.dispose();
+        }
+        return rendered;
+    }
+
+    // Desenha uma posição: fundo, ícone centrado e, se for o caso, a moldura de seleção
+    private void renderCell(Graphics2D g2, int i) {
+        int x = (i % cols) * cellSize, y = (i / cols) * cellSize;
+        g2.setColor(BACKGROUND);
+        g2.fillRect(x, y, cellSize, cellSize);
+        Icon icon = icons[i];
+        if (icon != null) {
+            icon.paintIcon(this, g2, x + (cellSize - icon.getIconWidth()) / 2, y + (cellSize - icon.getIconHeight()) / 2);
+        }
+        if (selected[i]) {
+            g2.setColor(Color.YELLOW);
+            g2.setStroke(SELECTION_STROKE);
+            g2.drawRect(x + 1, y + 1, cellSize - SELECTION_WIDTH, cellSize - SELECTION_WIDTH);
+        } else {
+            g2.setColor(GRID);
+            g2.setStroke(GRID_STROKE);
+            g2.drawRect(x, y, cellSize - 1, cellSize - 1);
+        }
+    }
+
+    // Métodos de Scrollable: a área visível inicial tem no máximo MAX_VISIBLE_CELLS posições de lado,
+    // e as barras de deslocamento avançam uma posição de cada vez
+    public Dimension getPreferredScrollableViewportSize() {
+        return new Dimension(Math.min(cols, MAX_VISIBLE_CELLS) * cellSize, Math.min(rows, MAX_VISIBLE_CELLS) * cellSize);
+    }
+
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return cellSize;
+    }
+
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+        int size = orientation == SwingConstants.VERTICAL ? visibleRect.height : visibleRect.width;
+        return Math.max(cellSize, size - cellSize);
+    }
+
+    public boolean getScrollableTracksViewportWidth() {
+        return false;
+    }
+
+    public boolean getScrollableTracksViewportHeight() {
+        return false;
+    }
+}
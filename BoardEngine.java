@@ -0,0 +1,715 @@
+// Motor do jogo sem interface gráfica
+// Esta classe contém todas as regras do jogo (troca, combinações, gravidade e preenchimento)
+// sem depender de Swing ou AWT, por isso pode ser usada em testes, simulações ou servidores.
+// O tabuleiro é guardado num array de bytes "achatado": a posição (row, col) fica no índice row * cols + col,
+// e cada byte é o ordinal do GemType (ou EMPTY quando a posição está vazia).
+// Para não percorrer o tabuleiro todo depois de cada jogada, o motor guarda as linhas e colunas
+// "sujas" (que mudaram desde a última verificação); só essas podem ter novas combinações.
+// Em tabuleiros grandes, a gravidade e o preenchimento são feitos coluna a coluna em paralelo,
+// e as combinações podem ser procuradas com instruções SIMD (ver RunKernel).
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+import java.util.stream.IntStream;
+
+public class BoardEngine {
+    public static final byte EMPTY = -1; // Valor usado para posições sem gema
+    public static final int POINTS_PER_GEM = 10; // Pontos ganhos por cada gema removida
+    // Uma jogada é guardada num int: índice da primeira posição * 2 + direção da troca
+    public static final int MOVE_RIGHT = 0; // Troca com a gema à direita
+    public static final int MOVE_DOWN = 1; // Troca com a gema de baixo
+    private static final int MAX_SHUFFLES = 100; // Tentativas de baralhar antes de gerar gemas novas
+    private static final int MAX_GENERATIONS = 20; // Tentativas de gerar um tabuleiro com jogadas antes de baralhar
+    private static final int PARALLEL_CELLS = 128 * 128; // A partir deste tamanho, gravidade e preenchimento correm em paralelo
+    private static final int ALL_TYPES = (1 << GemType.values().length) - 1; // Máscara com todas as cores
+
+    private static final GemType[] TYPES = GemType.values(); // Cache dos valores do enum (values() cria sempre um array novo)
+
+    private final int rows; // Número de linhas do tabuleiro
+    private final int cols; // Número de colunas do tabuleiro
+    private final byte[] cells; // Tabuleiro guardado linha a linha
+    private final RandomGenerator random; // Gerador de números aleatórios para as gemas
+    private final boolean[] marks; // Marcas reutilizadas pelas cascatas (evita criar arrays a cada passo)
+    // Linhas/colunas que podem ter combinações; as restantes foram verificadas e não mudaram desde então
+    private final boolean[] dirtyRows;
+    private final boolean[] dirtyCols;
+    private int score = 0; // Pontuação acumulada
+    private boolean safeRefill = false; // Se true, as gemas novas nunca completam uma sequência de 3
+    private final long[] columnSeeds; // Sementes do preenchimento paralelo (uma por coluna), reutilizadas
+    private final int[] spawnCounts; // Gemas novas por coluna no passo de cascata em curso (ver CascadeLog)
+    private RunKernel kernel; // Deteção vetorial das combinações, ou null para usar os ciclos simples
+    private boolean[] starts; // Posições onde começa uma sequência de 3 (só com kernel), sempre limpo entre usos
+    private boolean[] colRuns; // Colunas com sequências encontradas pelo kernel no findMatches em curso
+
+    // Construtor: cria um tabuleiro vazio com as dimensões indicadas
+    public BoardEngine(int rows, int cols, RandomGenerator random) {
+        if (rows < 3 || cols < 3) {
+            throw new IllegalArgumentException("O tabuleiro precisa de pelo menos 3x3 posições");
+        }
+        this.rows = rows;
+        this.cols = cols;
+        this.cells = new byte[rows * cols];
+        this.random = random;
+        this.marks = new boolean[rows * cols];
+        this.dirtyRows = new boolean[rows];
+        this.dirtyCols = new boolean[cols];
+        this.columnSeeds = new long[cols];
+        this.spawnCounts = new int[cols];
+        java.util.Arrays.fill(cells, EMPTY);
+        markAllDirty();
+        setVectorized(true);
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    // Soma pontos à pontuação (usado quando as gemas são removidas)
+    public void addScore(int points) {
+        score += points;
+    }
+
+    // Índice no array achatado da posição (row, col)
+    public int index(int row, int col) {
+        return row * cols + col;
+    }
+
+    // Devolve o código (ordinal do GemType ou EMPTY) da posição indicada
+    public byte getCode(int row, int col) {
+        return cells[row * cols + col];
+    }
+
+    // Devolve o tipo da gema na posição indicada, ou null se estiver vazia
+    public GemType get(int row, int col) {
+        byte code = cells[row * cols + col];
+        return code == EMPTY ? null : TYPES[code];
+    }
+
+    public boolean isEmpty(int row, int col) {
+        return cells[row * cols + col] == EMPTY;
+    }
+
+    // Coloca uma gema do tipo indicado (ou null para esvaziar) na posição
+    public void set(int row, int col, GemType type) {
+        cells[row * cols + col] = type == null ? EMPTY : (byte) type.ordinal();
+        markDirty(row, col);
+    }
+
+    // Esvazia a posição indicada
+    public void clear(int row, int col) {
+        cells[row * cols + col] = EMPTY;
+        markDirty(row, col);
+    }
+
+    // Marca a linha e a coluna de uma posição que mudou
+    private void markDirty(int row, int col) {
+        dirtyRows[row] = true;
+        dirtyCols[col] = true;
+    }
+
+    // Marca todas as linhas e colunas (depois de alterar o tabuleiro inteiro)
+    private void markAllDirty() {
+        java.util.Arrays.fill(dirtyRows, true);
+        java.util.Arrays.fill(dirtyCols, true);
+    }
+
+    // Copia o tabuleiro e a pontuação de outro motor com as mesmas dimensões
+    public void copyFrom(BoardEngine other) {
+        if (other.rows != rows || other.cols != cols) {
+            throw new IllegalArgumentException("Os tabuleiros têm dimensões diferentes");
+        }
+        System.arraycopy(other.cells, 0, cells, 0, cells.length);
+        System.arraycopy(other.dirtyRows, 0, dirtyRows, 0, rows);
+        System.arraycopy(other.dirtyCols, 0, dirtyCols, 0, cols);
+        score = other.score;
+    }
+
+    // Fotografia compacta (3 bits por posição) do tabuleiro e da pontuação, para desfazer ou gravar
+    public BoardSnapshot snapshot() {
+        return BoardSnapshot.pack(rows, cols, score, cells);
+    }
+
+    // Volta ao tabuleiro e à pontuação de uma fotografia com as mesmas dimensões
+    // (o gerador não volta atrás: as gemas novas a seguir podem ser diferentes das da primeira vez)
+    public void restore(BoardSnapshot snapshot) {
+        if (snapshot.getRows() != rows || snapshot.getCols() != cols) {
+            throw new IllegalArgumentException("Os tabuleiros têm dimensões diferentes");
+        }
+        snapshot.unpack(cells);
+        score = snapshot.getScore();
+        markAllDirty();
+    }
+
+    // Escolhe um código de gema aleatório com o gerador indicado
+    private static byte randomCode(RandomGenerator random) {
+        return (byte) random.nextInt(TYPES.length);
+    }
+
+    // Inicializa o tabuleiro com gemas aleatórias, sem combinações iniciais
+    public void initBoard() {
+        initBoard(false);
+    }
+
+    // Inicializa o tabuleiro numa só passagem: cada gema é escolhida entre as cores que não
+    // completam uma sequência de 3 com as gemas já colocadas (à esquerda e acima), por isso
+    // nunca há combinações e não é preciso repetir o tabuleiro inteiro.
+    // Com ensureMove, garante também que existe pelo menos uma jogada possível.
+    public void initBoard(boolean ensureMove) {
+        for (int attempt = 0; ; attempt++) {
+            java.util.Arrays.fill(cells, EMPTY);
+            for (int row = 0; row < rows; row++) {
+                for (int col = 0; col < cols; col++) {
+                    cells[row * cols + col] = safeCode(row, col, random);
+                }
+            }
+            markAllDirty();
+            if (!ensureMove || hasValidMove()) break;
+            if (attempt == MAX_GENERATIONS) {
+                shuffle(); // Muito raro (só em tabuleiros pequenos): o shuffle garante uma jogada
+                break;
+            }
+        }
+        score = 0;
+    }
+
+    // Define se o preenchimento (fillEmptySpaces) evita gemas que completam uma sequência de 3
+    // Assim as cascatas só continuam por causa das gemas que caem, nunca por causa das novas
+    public void setSafeRefill(boolean safeRefill) {
+        this.safeRefill = safeRefill;
+    }
+
+    public boolean isSafeRefill() {
+        return safeRefill;
+    }
+
+    // Liga ou desliga a deteção vetorial das combinações (ligada por omissão)
+    // Só é usada se a Vector API estiver disponível (ver RunKernel) e as linhas tiverem pelo menos
+    // tantas posições como um vetor; caso contrário ficam os ciclos simples. O resultado é o mesmo.
+    public void setVectorized(boolean vectorized) {
+        RunKernel k = vectorized ? RunKernel.vectorized() : null;
+        kernel = k != null && cols >= k.width() ? k : null;
+        if (kernel != null && starts == null) {
+            starts = new boolean[cells.length];
+            colRuns = new boolean[cols];
+        }
+    }
+
+    public boolean isVectorized() {
+        return kernel != null;
+    }
+
+    // Escolhe ao acaso uma cor para (row, col) que não complete uma sequência de 3 com as gemas vizinhas
+    // Há no máximo 6 cores proibidas (2 por cada lado e 1 de cada "meio"), por isso sobra sempre uma
+    private byte safeCode(int row, int col, RandomGenerator random) {
+        int banned = 0;
+        banned |= runColor(row, col, 0, -1, 0, -2); // Duas à esquerda
+        banned |= runColor(row, col, 0, 1, 0, 2); // Duas à direita
+        banned |= runColor(row, col, 0, -1, 0, 1); // Uma de cada lado
+        banned |= runColor(row, col, -1, 0, -2, 0); // Duas acima
+        banned |= runColor(row, col, 1, 0, 2, 0); // Duas abaixo
+        banned |= runColor(row, col, -1, 0, 1, 0); // Uma acima e outra abaixo
+        int allowed = ALL_TYPES & ~banned;
+        // Escolhe o k-ésimo bit ligado da máscara de cores permitidas
+        int k = random.nextInt(Integer.bitCount(allowed));
+        while (k-- > 0) allowed &= allowed - 1;
+        return (byte) Integer.numberOfTrailingZeros(allowed);
+    }
+
+    // Se as posições (row+dr1, col+dc1) e (row+dr2, col+dc2) existem e têm a mesma gema,
+    // devolve a máscara com essa cor (que faria uma sequência de 3 com (row, col)); senão devolve 0
+    private int runColor(int row, int col, int dr1, int dc1, int dr2, int dc2) {
+        int r1 = row + dr1, c1 = col + dc1, r2 = row + dr2, c2 = col + dc2;
+        if (r1 < 0 || r1 >= rows || c1 < 0 || c1 >= cols || r2 < 0 || r2 >= rows || c2 < 0 || c2 >= cols) return 0;
+        byte a = cells[r1 * cols + c1];
+        return a != EMPTY && a == cells[r2 * cols + c2] ? 1 << a : 0;
+    }
+
+    // Verifica se duas posições são adjacentes (vizinho direto)
+    public boolean isAdjacent(int r1, int c1, int r2, int c2) {
+        return (Math.abs(r1 - r2) == 1 && c1 == c2) || (Math.abs(c1 - c2) == 1 && r1 == r2);
+    }
+
+    // Troca duas gemas de posição no tabuleiro
+    public void swap(int r1, int c1, int r2, int c2) {
+        int a = r1 * cols + c1, b = r2 * cols + c2;
+        byte temp = cells[a];
+        cells[a] = cells[b];
+        cells[b] = temp;
+        markDirty(r1, c1);
+        markDirty(r2, c2);
+    }
+
+    // Tenta uma jogada: troca as gemas e desfaz a troca se não resultar numa combinação
+    // Devolve true se a jogada foi válida (e fica aplicada)
+    public boolean trySwap(int r1, int c1, int r2, int c2) {
+        if (!isAdjacent(r1, c1, r2, c2)) return false;
+        swap(r1, c1, r2, c2);
+        if (hasCombination()) return true;
+        swap(r1, c1, r2, c2);
+        return false;
+    }
+
+    // Verifica, sem alterar o tabuleiro, se trocar duas posições adjacentes forma uma combinação
+    // Só olha para as posições à volta das duas gemas trocadas (no máximo 2 para cada lado)
+    public boolean isValidMove(int r1, int c1, int r2, int c2) {
+        if (!isAdjacent(r1, c1, r2, c2)) return false;
+        byte a = cells[r1 * cols + c1], b = cells[r2 * cols + c2];
+        if (a == b || a == EMPTY || b == EMPTY) return false;
+        return formsRun(r2, c2, a, r1, c1) || formsRun(r1, c1, b, r2, c2);
+    }
+
+    // Verifica se a gema v, colocada em (row, col) vinda da posição vizinha (fromRow, fromCol),
+    // fica numa sequência de 3 ou mais. A posição de origem passa a ter a outra gema, por isso não conta.
+    private boolean formsRun(int row, int col, byte v, int fromRow, int fromCol) {
+        if (1 + countSame(row, col, v, 0, -1, fromRow, fromCol) + countSame(row, col, v, 0, 1, fromRow, fromCol) >= 3) {
+            return true;
+        }
+        return 1 + countSame(row, col, v, -1, 0, fromRow, fromCol) + countSame(row, col, v, 1, 0, fromRow, fromCol) >= 3;
+    }
+
+    // Conta (até 2) as gemas iguais a v seguidas a partir de (row, col), na direção (dr, dc)
+    private int countSame(int row, int col, byte v, int dr, int dc, int fromRow, int fromCol) {
+        int n = 0;
+        int r = row + dr, c = col + dc;
+        while (n < 2 && r >= 0 && r < rows && c >= 0 && c < cols && (r != fromRow || c != fromCol)
+                && cells[r * cols + c] == v) {
+            n++;
+            r += dr;
+            c += dc;
+        }
+        return n;
+    }
+
+    // Preenche "out" (com pelo menos rows * cols * 2 posições) com todas as jogadas que formam
+    // uma combinação e devolve quantas são. Ver MOVE_RIGHT/MOVE_DOWN e moveRow/moveCol/...
+    public int findValidMoves(int[] out) {
+        int count = 0;
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                int i = row * cols + col;
+                if (col + 1 < cols && isValidMove(row, col, row, col + 1)) out[count++] = (i << 1) | MOVE_RIGHT;
+                if (row + 1 < rows && isValidMove(row, col, row + 1, col)) out[count++] = (i << 1) | MOVE_DOWN;
+            }
+        }
+        return count;
+    }
+
+    // Devolve a primeira jogada válida encontrada (útil para dar uma dica), ou -1 se não houver
+    public int findHint() {
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                int i = row * cols + col;
+                if (col + 1 < cols && isValidMove(row, col, row, col + 1)) return (i << 1) | MOVE_RIGHT;
+                if (row + 1 < rows && isValidMove(row, col, row + 1, col)) return (i << 1) | MOVE_DOWN;
+            }
+        }
+        return -1;
+    }
+
+    // Indica se ainda há alguma jogada possível (se não houver, o tabuleiro está "morto")
+    public boolean hasValidMove() {
+        return findHint() >= 0;
+    }
+
+    // Linha/coluna das duas posições de uma jogada
+    public int moveRow(int move) {
+        return (move >> 1) / cols;
+    }
+
+    public int moveCol(int move) {
+        return (move >> 1) % cols;
+    }
+
+    public int moveTargetRow(int move) {
+        return moveRow(move) + ((move & 1) == MOVE_DOWN ? 1 : 0);
+    }
+
+    public int moveTargetCol(int move) {
+        return moveCol(move) + ((move & 1) == MOVE_RIGHT ? 1 : 0);
+    }
+
+    // Baralha as gemas do tabuleiro até não haver combinações e existir pelo menos uma jogada
+    // Se as gemas existentes não o permitirem, gera gemas novas. A pontuação mantém-se.
+    public void shuffle() {
+        for (int attempt = 0; ; attempt++) {
+            if (attempt < MAX_SHUFFLES) {
+                // Baralhamento de Fisher-Yates
+                for (int i = cells.length - 1; i > 0; i--) {
+                    int j = random.nextInt(i + 1);
+                    byte temp = cells[i];
+                    cells[i] = cells[j];
+                    cells[j] = temp;
+                }
+            } else {
+                // Gemas novas, já sem combinações (ver initBoard)
+                java.util.Arrays.fill(cells, EMPTY);
+                for (int row = 0; row < rows; row++) {
+                    for (int col = 0; col < cols; col++) {
+                        cells[row * cols + col] = safeCode(row, col, random);
+                    }
+                }
+            }
+            markAllDirty();
+            if (!hasCombination() && hasValidMove()) return;
+        }
+    }
+
+    // Verifica se existe alguma combinação no tabuleiro
+    // Só verifica as linhas/colunas sujas e pára logo que encontra a primeira sequência de 3,
+    // sem marcar nada. As linhas/colunas verificadas sem combinações deixam de estar sujas.
+    public boolean hasCombination() {
+        if (kernel != null) return hasCombinationVector();
+        for (int row = 0; row < rows; row++) {
+            if (dirtyRows[row]) {
+                if (rowHasRun(row)) return true;
+                dirtyRows[row] = false;
+            }
+        }
+        for (int col = 0; col < cols; col++) {
+            if (dirtyCols[col]) {
+                if (colHasRun(col)) return true;
+                dirtyCols[col] = false;
+            }
+        }
+        return false;
+    }
+
+    // Verifica se uma linha tem uma sequência de 3 gemas iguais
+    private boolean rowHasRun(int row) {
+        int base = row * cols;
+        for (int col = 0; col + 2 < cols; col++) {
+            byte c = cells[base + col];
+            if (c != EMPTY && c == cells[base + col + 1] && c == cells[base + col + 2]) return true;
+        }
+        return false;
+    }
+
+    // Verifica se uma coluna tem uma sequência de 3 gemas iguais
+    private boolean colHasRun(int col) {
+        for (int i = col; i + 2 * cols < cells.length; i += cols) {
+            byte c = cells[i];
+            if (c != EMPTY && c == cells[i + cols] && c == cells[i + 2 * cols]) return true;
+        }
+        return false;
+    }
+
+    // Marca em "out" as posições que fazem parte de linhas/colunas de 3 ou mais gemas iguais
+    // O array tem uma entrada por posição (índice row * cols + col) e é reutilizado pelo chamador
+    // Só as linhas/colunas sujas são verificadas; as que não têm combinações deixam de estar sujas
+    // (as que têm continuam sujas até as gemas serem removidas). Devolve o número de posições marcadas
+    public int findMatches(boolean[] out) {
+        if (kernel != null) return findMatchesVector(out);
+        java.util.Arrays.fill(out, false);
+        int marked = 0;
+        // Verifica linhas
+        for (int row = 0; row < rows; row++) {
+            if (!dirtyRows[row]) continue;
+            int found = markRowRuns(row, out);
+            if (found == 0) dirtyRows[row] = false;
+            marked += found;
+        }
+        // Verifica colunas (as posições já marcadas por uma linha não contam duas vezes)
+        for (int col = 0; col < cols; col++) {
+            if (!dirtyCols[col]) continue;
+            int found = markColRuns(col, out);
+            if (found == 0) dirtyCols[col] = false;
+            marked += found;
+        }
+        return marked;
+    }
+
+    // Marca as sequências de 3 ou mais de uma linha; devolve quantas posições novas marcou
+    private int markRowRuns(int row, boolean[] out) {
+        int base = row * cols;
+        int marked = 0;
+        int count = 1;
+        for (int col = 1; col <= cols; col++) {
+            if (col < cols && cells[base + col] != EMPTY && cells[base + col] == cells[base + col - 1]) {
+                count++;
+            } else {
+                if (count >= 3) {
+                    for (int k = 1; k <= count; k++) {
+                        int j = base + col - k;
+                        if (!out[j]) {
+                            out[j] = true;
+                            marked++;
+                        }
+                    }
+                }
+                count = 1;
+            }
+        }
+        return marked;
+    }
+
+    // Marca as sequências de 3 ou mais de uma coluna; devolve quantas posições novas marcou
+    private int markColRuns(int col, boolean[] out) {
+        int marked = 0;
+        int count = 1;
+        for (int row = 1; row <= rows; row++) {
+            int i = row * cols + col;
+            if (row < rows && cells[i] != EMPTY && cells[i] == cells[i - cols]) {
+                count++;
+            } else {
+                if (count >= 3) {
+                    for (int k = 1; k <= count; k++) {
+                        int j = (row - k) * cols + col;
+                        if (!out[j]) {
+                            out[j] = true;
+                            marked++;
+                        }
+                    }
+                }
+                count = 1;
+            }
+        }
+        return marked;
+    }
+
+    // Versão de hasCombination com o kernel: as colunas são verificadas todas de uma vez, comparando
+    // cada linha com as duas de baixo (uma coluna limpa não tem sequências, por isso o resultado é o mesmo)
+    private boolean hasCombinationVector() {
+        for (int row = 0; row < rows; row++) {
+            if (dirtyRows[row]) {
+                if (kernel.hasTriple(cells, row * cols, cols - 2, 1)) return true;
+                dirtyRows[row] = false;
+            }
+        }
+        if (!anyDirtyCol()) return false;
+        for (int row = 0; row + 2 < rows; row++) {
+            if (kernel.hasTriple(cells, row * cols, cols, cols)) return true;
+        }
+        java.util.Arrays.fill(dirtyCols, false);
+        return false;
+    }
+
+    // Versão de findMatches com o kernel: o kernel encontra onde começam as sequências de 3 e
+    // aqui só se marcam as três posições de cada uma (as sequências mais longas são várias sobrepostas)
+    private int findMatchesVector(boolean[] out) {
+        java.util.Arrays.fill(out, false);
+        int marked = 0;
+        for (int row = 0; row < rows; row++) {
+            if (!dirtyRows[row]) continue;
+            int base = row * cols;
+            if (kernel.findTriples(cells, base, cols - 2, 1, starts) == 0) {
+                dirtyRows[row] = false;
+                continue;
+            }
+            for (int i = base; i < base + cols - 2; i++) {
+                if (!starts[i]) continue;
+                starts[i] = false;
+                marked += mark(out, i) + mark(out, i + 1) + mark(out, i + 2);
+            }
+        }
+        if (!anyDirtyCol()) return marked;
+        java.util.Arrays.fill(colRuns, false);
+        for (int row = 0; row + 2 < rows; row++) {
+            int base = row * cols;
+            if (kernel.findTriples(cells, base, cols, cols, starts) == 0) continue;
+            for (int col = 0; col < cols; col++) {
+                int i = base + col;
+                if (!starts[i]) continue;
+                starts[i] = false;
+                colRuns[col] = true;
+                marked += mark(out, i) + mark(out, i + cols) + mark(out, i + 2 * cols);
+            }
+        }
+        for (int col = 0; col < cols; col++) {
+            if (!colRuns[col]) dirtyCols[col] = false;
+        }
+        return marked;
+    }
+
+    // Marca uma posição; devolve 1 se ainda não estava marcada
+    private static int mark(boolean[] out, int i) {
+        if (out[i]) return 0;
+        out[i] = true;
+        return 1;
+    }
+
+    private boolean anyDirtyCol() {
+        for (boolean dirty : dirtyCols) {
+            if (dirty) return true;
+        }
+        return false;
+    }
+
+    // Remove as gemas marcadas, soma a pontuação e devolve quantas foram removidas
+    public int removeMarked(boolean[] marked) {
+        int removed = 0;
+        for (int i = 0; i < cells.length; i++) {
+            if (marked[i]) {
+                cells[i] = EMPTY;
+                markDirty(i / cols, i % cols);
+                removed++;
+            }
+        }
+        score += removed * POINTS_PER_GEM;
+        return removed;
+    }
+
+    // Indica se o tabuleiro é grande o suficiente para compensar dividir o trabalho por vários núcleos
+    private boolean isParallel() {
+        return cells.length >= PARALLEL_CELLS;
+    }
+
+    // Aplica a gravidade: faz as gemas caírem para preencher espaços vazios
+    // Cada coluna é independente das outras, por isso em tabuleiros grandes são tratadas em paralelo
+    // (as várias threads só escrevem "true" em dirtyRows, por isso a ordem não importa)
+    public void applyGravity() {
+        if (isParallel()) {
+            IntStream.range(0, cols).parallel().forEach(this::applyGravity);
+        } else {
+            for (int col = 0; col < cols; col++) {
+                applyGravity(col);
+            }
+        }
+    }
+
+    // Aplica a gravidade a uma coluna
+    private void applyGravity(int col) {
+        int empty = rows - 1;
+        for (int row = rows - 1; row >= 0; row--) {
+            int i = row * cols + col;
+            if (cells[i] != EMPTY) {
+                if (empty != row) {
+                    cells[empty * cols + col] = cells[i];
+                    cells[i] = EMPTY;
+                    markDirty(empty, col);
+                    markDirty(row, col);
+                }
+                empty--;
+            }
+        }
+    }
+
+    // Preenche os espaços vazios com novas gemas aleatórias (ver setSafeRefill)
+    // Em tabuleiros grandes as colunas são preenchidas em paralelo: cada coluna tem o seu próprio
+    // gerador, criado a partir de uma semente tirada (por ordem) do gerador principal, por isso o
+    // resultado é sempre o mesmo, seja qual for o número de núcleos.
+    public void fillEmptySpaces() {
+        if (!isParallel()) {
+            for (int col = 0; col < cols; col++) {
+                fillColumn(col, random);
+            }
+            return;
+        }
+        for (int col = 0; col < cols; col++) {
+            columnSeeds[col] = random.nextLong();
+        }
+        if (!safeRefill) {
+            IntStream.range(0, cols).parallel().forEach(col -> fillColumn(col, new SplittableRandom(columnSeeds[col])));
+            return;
+        }
+        // O preenchimento seguro lê as duas colunas de cada lado: em cada fase só se preenchem colunas
+        // separadas por 3, para nenhuma thread ler uma coluna que outra está a escrever
+        for (int phase = 0; phase < 3; phase++) {
+            int first = phase;
+            IntStream.range(0, (cols - first + 2) / 3).parallel().forEach(k -> {
+                int col = first + k * 3;
+                fillColumn(col, new SplittableRandom(columnSeeds[col]));
+            });
+        }
+    }
+
+    // Preenche os espaços vazios de uma coluna com gemas tiradas do gerador indicado
+    private void fillColumn(int col, RandomGenerator random) {
+        for (int row = 0; row < rows; row++) {
+            int i = row * cols + col;
+            if (cells[i] == EMPTY) {
+                cells[i] = safeRefill ? safeCode(row, col, random) : randomCode(random);
+                markDirty(row, col);
+            }
+        }
+    }
+
+    // Resolve todas as combinações em cascata (remover, gravidade, preencher) até o tabuleiro estabilizar
+    // Devolve o número total de gemas removidas
+    public int resolveCascades() {
+        return resolveCascades(null);
+    }
+
+    // Igual a resolveCascades(), mas escreve em log (se não for null) o que aconteceu em cada passo:
+    // gemas removidas, pontos, quedas (com a distância) e gemas novas
+    public int resolveCascades(CascadeLog log) {
+        int total = 0;
+        for (int depth = 1; ; depth++) {
+            if (findMatches(marks) == 0) return total;
+            if (log != null) {
+                log.add(CascadeLog.STEP, depth, 0);
+                for (int i = 0; i < marks.length; i++) {
+                    if (marks[i]) log.add(CascadeLog.MATCH, 0, i);
+                }
+            }
+            int removed = removeMarked(marks);
+            total += removed;
+            if (log != null) {
+                log.add(CascadeLog.SCORE, removed * POINTS_PER_GEM, 0);
+                logFalls(log);
+            }
+            applyGravity();
+            fillEmptySpaces();
+            if (log != null) logSpawns(log);
+        }
+    }
+
+    // Escreve no log a queda de cada gema (antes de aplicar a gravidade) e conta os espaços de cada coluna
+    private void logFalls(CascadeLog log) {
+        for (int col = 0; col < cols; col++) {
+            int empty = rows - 1;
+            for (int row = rows - 1; row >= 0; row--) {
+                if (cells[row * cols + col] != EMPTY) {
+                    if (empty != row) log.add(CascadeLog.FALL, empty - row, empty * cols + col);
+                    empty--;
+                }
+            }
+            spawnCounts[col] = empty + 1; // Depois da gravidade, estas posições do topo ficam vazias
+        }
+    }
+
+    // Escreve no log as gemas novas (as posições do topo de cada coluna que estavam vazias)
+    private void logSpawns(CascadeLog log) {
+        for (int col = 0; col < cols; col++) {
+            for (int row = 0; row < spawnCounts[col]; row++) {
+                int i = row * cols + col;
+                log.add(CascadeLog.SPAWN, cells[i], i);
+            }
+        }
+    }
+
+    // Faz uma jogada completa com as mesmas regras do GameBoard: troca as gemas e, se não houver
+    // combinação, desfaz a troca; senão resolve as cascatas. No fim, se o tabuleiro ficou sem
+    // jogadas possíveis, baralha-o. Usa o gerador pela mesma ordem que o jogo com animações,
+    // por isso uma sessão com a mesma semente e as mesmas trocas chega ao mesmo tabuleiro (ver Replay).
+    // Devolve o número de gemas removidas.
+    public int playMove(int r1, int c1, int r2, int c2) {
+        return playMove(r1, c1, r2, c2, null);
+    }
+
+    // Igual a playMove, mas escreve em log (se não for null) todos os eventos da jogada, pela ordem
+    // em que aconteceram; o log é apagado antes de começar
+    public int playMove(int r1, int c1, int r2, int c2, CascadeLog log) {
+        if (!isAdjacent(r1, c1, r2, c2)) {
+            throw new IllegalArgumentException("As posições não são adjacentes");
+        }
+        boolean valid = trySwap(r1, c1, r2, c2);
+        if (log != null) {
+            log.clear();
+            int first = Math.min(index(r1, c1), index(r2, c2));
+            log.add(CascadeLog.SWAP, valid ? 1 : 0, (first << 1) | (r1 == r2 ? MOVE_RIGHT : MOVE_DOWN));
+        }
+        int removed = valid ? resolveCascades(log) : 0;
+        if (!hasValidMove()) {
+            shuffle();
+            if (log != null) log.add(CascadeLog.SHUFFLE, 0, 0);
+        }
+        return removed;
+    }
+}
@@ -0,0 +1,143 @@
+// Fotografia compacta do tabuleiro e da pontuação (ver BoardEngine.snapshot e BoardEngine.restore)
+// Como só há 7 tipos de gema, cada posição cabe em 3 bits: o ordinal do GemType (0 a 6) ou 7
+// para uma posição vazia. As posições são guardadas 21 a 21 em longs (63 bits), por isso um
+// tabuleiro de 8x8 ocupa 4 longs (32 bytes).
+// As fotografias não mudam depois de criadas e podem ser partilhadas (histórico, gravação em disco).
+//
+// Formato em disco (binário, big-endian):
+//   cabeçalho de 12 bytes: "BJSN", versão (1 byte), 1 byte reservado, linhas e colunas (2 bytes cada)
+//   e 2 bytes reservados, seguido da pontuação (4 bytes) e dos longs com as posições.
+// Várias fotografias podem ser escritas seguidas no mesmo buffer ou ficheiro (writeTo / readFrom).
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+public final class BoardSnapshot {
+    private static final int MAGIC = 0x424A534E; // "BJSN"
+    private static final byte VERSION = 1;
+    private static final int HEADER_BYTES = 12;
+    private static final int BITS = 3; // Bits por posição
+    private static final int MASK = (1 << BITS) - 1;
+    private static final int CELLS_PER_LONG = Long.SIZE / BITS; // 21
+    private static final int EMPTY_CODE = MASK; // Código (3 bits) de uma posição vazia
+
+    private final int rows;
+    private final int cols;
+    private final int score;
+    private final long[] bits;
+
+    private BoardSnapshot(int rows, int cols, int score, long[] bits) {
+        this.rows = rows;
+        this.cols = cols;
+        this.score = score;
+        this.bits = bits;
+    }
+
+    // Empacota um tabuleiro (códigos como em BoardEngine: ordinal do GemType ou EMPTY)
+    static BoardSnapshot pack(int rows, int cols, int score, byte[] cells) {
+        long[] bits = new long[longsFor(cells.length)];
+        for (int i = 0; i < cells.length; i++) {
+            // EMPTY (-1) & 7 dá 7, que é exatamente o código das posições vazias
+            bits[i / CELLS_PER_LONG] |= (long) (cells[i] & MASK) << (BITS * (i % CELLS_PER_LONG));
+        }
+        return new BoardSnapshot(rows, cols, score, bits);
+    }
+
+    // Desempacota as posições para um tabuleiro com as mesmas dimensões
+    void unpack(byte[] cells) {
+        for (int i = 0; i < cells.length; i++) {
+            int code = (int) (bits[i / CELLS_PER_LONG] >>> (BITS * (i % CELLS_PER_LONG))) & MASK;
+            cells[i] = code == EMPTY_CODE ? BoardEngine.EMPTY : (byte) code;
+        }
+    }
+
+    private static int longsFor(int cells) {
+        return (cells + CELLS_PER_LONG - 1) / CELLS_PER_LONG;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    // Tipo da gema na posição indicada, ou null se estiver vazia
+    public GemType get(int row, int col) {
+        int i = row * cols + col;
+        int code = (int) (bits[i / CELLS_PER_LONG] >>> (BITS * (i % CELLS_PER_LONG))) & MASK;
+        return code == EMPTY_CODE ? null : GemType.values()[code];
+    }
+
+    // Número de bytes ocupados por esta fotografia em disco (writeTo)
+    public int byteSize() {
+        return HEADER_BYTES + 4 + bits.length * Long.BYTES;
+    }
+
+    // Escreve a fotografia na posição atual do buffer
+    public void writeTo(ByteBuffer buffer) {
+        buffer.putInt(MAGIC);
+        buffer.put(VERSION);
+        buffer.put((byte) 0);
+        buffer.putShort((short) rows);
+        buffer.putShort((short) cols);
+        buffer.putShort((short) 0);
+        buffer.putInt(score);
+        for (long word : bits) {
+            buffer.putLong(word);
+        }
+    }
+
+    // Lê uma fotografia a partir da posição atual do buffer
+    public static BoardSnapshot readFrom(ByteBuffer buffer) throws IOException {
+        try {
+            if (buffer.getInt() != MAGIC) throw new IOException("Não é uma fotografia do tabuleiro");
+            if (buffer.get() != VERSION) throw new IOException("Versão de fotografia desconhecida");
+            buffer.get();
+            int rows = buffer.getShort();
+            int cols = buffer.getShort();
+            buffer.getShort();
+            if (rows < 3 || cols < 3) throw new IOException("Dimensões inválidas: " + rows + "x" + cols);
+            int score = buffer.getInt();
+            long[] bits = new long[longsFor(rows * cols)];
+            for (int i = 0; i < bits.length; i++) {
+                bits[i] = buffer.getLong();
+            }
+            return new BoardSnapshot(rows, cols, score, bits);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Fotografia incompleta");
+        }
+    }
+
+    // Grava a fotografia num ficheiro (ver AtomicFile: nunca fica um ficheiro a meio)
+    public void save(Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(byteSize());
+        writeTo(buffer);
+        buffer.flip();
+        AtomicFile.write(file, buffer);
+    }
+
+    public static BoardSnapshot load(Path file) throws IOException {
+        return readFrom(ByteBuffer.wrap(Files.readAllBytes(file)));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof BoardSnapshot)) return false;
+        BoardSnapshot other = (BoardSnapshot) o;
+        return rows == other.rows && cols == other.cols && score == other.score && Arrays.equals(bits, other.bits);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * (31 * rows + cols) + score) + Arrays.hashCode(bits);
+    }
+}
@@ -0,0 +1,28 @@
+// Interface para a parte visual do tabuleiro
+// O GameBoard decide o que mostrar em cada posição (ícone e seleção); a implementação
+// decide como desenhar. Há duas implementações:
+//  - ButtonGridView: uma grelha de JButtons (a versão original, simples de perceber);
+//  - BoardCanvas: desenha a grelha diretamente e só redesenha as posições que mudaram.
+import javax.swing.*;
+
+public interface BoardView {
+    // Interface chamada quando o utilizador clica numa posição do tabuleiro
+    interface ClickListener {
+        void cellClicked(int row, int col);
+    }
+
+    // Componente Swing a adicionar à janela
+    JComponent getComponent();
+
+    // Define o ícone mostrado numa posição (null para não mostrar nada)
+    void setIcon(int row, int col, Icon icon);
+
+    // Liga ou desliga o destaque (moldura amarela) de uma posição
+    void setSelected(int row, int col, boolean selected);
+
+    // Pede o redesenho das posições que mudaram desde a última chamada
+    void flush();
+
+    // Redesenha todas as posições, mesmo as que mantêm o ícone (p. ex. quando as imagens acabam de carregar)
+    void repaintAll();
+}
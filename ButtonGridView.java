@@ -0,0 +1,45 @@
+// Vista do tabuleiro feita com uma grelha de botões (um JButton por posição)
+// É a forma mais simples de mostrar o tabuleiro: cada botão trata do seu próprio desenho.
+import javax.swing.*;
+import java.awt.*;
+
+public class ButtonGridView implements BoardView {
+    private final JPanel gridPanel;
+    private final JButton[][] buttons;
+
+    public ButtonGridView(int rows, int cols, int cellSize, ClickListener listener) {
+        gridPanel = new JPanel(new GridLayout(rows, cols));
+        buttons = new JButton[rows][cols];
+        // Cria os botões e adiciona ao painel
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                JButton btn = new JButton();
+                btn.setPreferredSize(new Dimension(cellSize, cellSize));
+                final int r = row, c = col;
+                btn.addActionListener(e -> listener.cellClicked(r, c));
+                buttons[row][col] = btn;
+                gridPanel.add(btn);
+            }
+        }
+    }
+
+    public JComponent getComponent() {
+        return gridPanel;
+    }
+
+    public void setIcon(int row, int col, Icon icon) {
+        buttons[row][col].setIcon(icon);
+    }
+
+    public void setSelected(int row, int col, boolean selected) {
+        buttons[row][col].setBorder(selected ? BorderFactory.createLineBorder(Color.YELLOW, 3) : null);
+    }
+
+    // Os botões já se redesenham sozinhos quando o ícone muda
+    public void flush() {
+    }
+
+    public void repaintAll() {
+        getComponent().repaint();
+    }
+}
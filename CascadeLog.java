@@ -0,0 +1,55 @@
+// Registo compacto do que aconteceu numa jogada (ver BoardEngine.playMove)
+// O motor resolve a jogada inteira de uma vez e escreve aqui a sequência de eventos; a parte
+// visual (GameBoard) reproduz depois esses eventos com animações, ao seu próprio ritmo.
+// Cada evento ocupa dois ints num único array reutilizado (não se cria nenhum objeto por evento):
+//   o tipo e um argumento (8 + 24 bits) e o índice da posição (row * cols + col).
+public final class CascadeLog {
+    public static final int SWAP = 0; // Troca feita; argumento 1 se formou combinação, 0 se foi desfeita; índice = jogada
+    public static final int STEP = 1; // Início de um passo de cascata; argumento = profundidade (1, 2, ...)
+    public static final int MATCH = 2; // Gema removida por fazer parte de uma combinação
+    public static final int SCORE = 3; // Pontos ganhos neste passo; argumento = pontos
+    public static final int FALL = 4; // Gema que caiu para a posição indicada; argumento = número de linhas
+    public static final int SPAWN = 5; // Gema nova na posição indicada; argumento = código da gema
+    public static final int SHUFFLE = 6; // O tabuleiro ficou sem jogadas e foi baralhado
+
+    private static final int ARG_BITS = 24;
+    private static final int ARG_MASK = (1 << ARG_BITS) - 1;
+
+    private int[] data = new int[256];
+    private int size = 0; // Número de eventos
+
+    // Apaga todos os eventos (o array é reutilizado)
+    public void clear() {
+        size = 0;
+    }
+
+    void add(int type, int arg, int index) {
+        if (2 * size + 2 > data.length) data = java.util.Arrays.copyOf(data, data.length * 2);
+        data[2 * size] = (type << ARG_BITS) | (arg & ARG_MASK);
+        data[2 * size + 1] = index;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int type(int event) {
+        return data[2 * event] >>> ARG_BITS;
+    }
+
+    public int arg(int event) {
+        return data[2 * event] & ARG_MASK;
+    }
+
+    public int index(int event) {
+        return data[2 * event + 1];
+    }
+
+    // Procura o próximo evento do tipo indicado a partir de from (ou size() se não houver)
+    public int next(int type, int from) {
+        int e = from;
+        while (e < size && type(e) != type) e++;
+        return e;
+    }
+}
@@ -0,0 +1,37 @@
+// Sequência de imagens pré-desenhadas para uma animação de desvanecimento (fade-out)
+// Em vez de criar uma nova BufferedImage em cada frame da animação, todas as imagens
+// (uma por passo de opacidade) são desenhadas uma única vez e depois reutilizadas.
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+public final class FadeFrames {
+    private final ImageIcon[] frames; // frames[step] tem opacidade 1 - step/steps
+
+    // Pré-desenha steps+1 imagens de size x size com a imagem centrada, redimensionada por scale.
+    // Se a imagem não existir (null ou ainda sem largura), desenha um círculo vermelho no seu lugar.
+    public FadeFrames(Image img, int size, float scale, int steps) {
+        frames = new ImageIcon[steps + 1];
+        int drawn = (int) (size * scale);
+        int x = (size - drawn) / 2, y = (size - drawn) / 2;
+        for (int step = 0; step <= steps; step++) {
+            float alpha = 1.0f - (float) step / steps;
+            BufferedImage frame = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g2 = frame.createGraphics();
+            g2.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, alpha));
+            if (img != null && img.getWidth(null) > 0) {
+                g2.drawImage(img, x, y, drawn, drawn, null);
+            } else {
+                g2.setColor(Color.RED);
+                g2.fillOval(x, y, drawn, drawn);
+            }
+            g2.dispose();
+            frames[step] = new ImageIcon(frame);
+        }
+    }
+
+    // Devolve o frame do passo indicado (limitado ao intervalo válido)
+    public ImageIcon frame(int step) {
+        return frames[Math.max(0, Math.min(step, frames.length - 1))];
+    }
+}
@@ -1,466 +1,693 @@
 // Painel principal do jogo Bejeweled
-// Esta classe representa o tabuleiro do jogo e toda a lógica principal.
-// O tabuleiro é composto por uma grelha de botões, cada um representando uma gema.
-// Os alunos podem usar esta classe para perceber conceitos de arrays bidimensionais, eventos e interface gráfica em Java.
+// Esta classe desenha o tabuleiro e trata das animações: as regras do jogo estão no BoardEngine
+// (sem interface gráfica) e cada jogada devolve um CascadeLog com tudo o que aconteceu, que este
+// painel mostra passo a passo. O desenho das posições fica a cargo de uma BoardView: um único
+// componente desenhado (BoardCanvas) ou, com -Dbejeweled.renderer=buttons, a grelha de botões
+// original (ButtonGridView).
+// Os alunos podem usar esta classe para perceber conceitos de eventos, animação e interface gráfica em Java.
 import javax.swing.*;
 import java.awt.*;
-import java.awt.event.*;
+import java.awt.event.ActionEvent;
 import java.awt.image.BufferedImage;
-import java.awt.AlphaComposite;
-import java.util.Random;
-import java.util.HashSet;
-import java.util.Set;
-import javax.sound.sampled.*;
-import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+import java.util.SplittableRandom;
 
 public class GameBoard extends JPanel {
-    // Constantes para o tamanho do tabuleiro e das gemas
-    private static final int ROWS = 8; // Número de linhas do tabuleiro
-    private static final int COLS = 8; // Número de colunas do tabuleiro
-    private static final int GEM_SIZE = 64; // Tamanho dos ícones das gemas (ajuste conforme as imagens)
-
-    // Matrizes para guardar as gemas e os botões do tabuleiro
-    private Gem[][] board = new Gem[ROWS][COLS];
-    private JButton[][] buttons = new JButton[ROWS][COLS];
+    // Tamanho por omissão do tabuleiro e das gemas
+    public static final int DEFAULT_ROWS = 8; // Número de linhas do tabuleiro
+    public static final int DEFAULT_COLS = 8; // Número de colunas do tabuleiro
+    public static final int DEFAULT_GEM_SIZE = 64; // Tamanho dos ícones das gemas (ajuste conforme as imagens)
+    private static final int MAX_BUTTON_CELLS = 32 * 32; // Acima disto a grelha de botões fica demasiado pesada
+    private static final int EXPLOSION_STEPS = 10; // Número de passos do fade-out da explosão
+    private static final int ANIMATION_STEP_MS = 10; // Passo fixo do relógio de animação
+    private static final int SLIDE_MS = 160; // Duração do deslize de uma troca
+    private static final int SLIDE_FRAMES = 8; // Número de alternâncias de ícones durante o deslize
+    private static final int EXPLOSION_HOLD_MS = 300; // Tempo que a explosão fica visível antes do fade-out
+    private static final int EXPLOSION_FADE_MS = 440; // Duração do fade-out da explosão
+    private static final int GRAVITY_MS = 320; // Duração da queda das gemas
+    private static final int HINT_DELAY_MS = 5000; // Tempo sem jogar até aparecer uma dica
+    private static final int OVERLAY_REFRESH_MS = 1000; // Intervalo de atualização do painel de métricas
+    private static final int UNDO_CAPACITY = 1000; // Jogadas que podem ser desfeitas no modo de treino
+
+    // Tamanho deste tabuleiro (definido no construtor)
+    private final int rows;
+    private final int cols;
+    private final int gemSize;
+    // Motor com o estado e as regras do jogo; este painel apenas o desenha
+    private final BoardEngine engine;
+    private final long seed; // Semente do gerador do motor: com as trocas feitas, permite repetir a sessão
+    private Replay.Recorder recorder; // Grava as trocas (com -Dbejeweled.record=ficheiro), ou null
+    private UndoHistory history; // Desfazer/refazer (modo de treino, -Dbejeweled.practice=true), ou null
+    private Path saveFile; // Onde o jogo é guardado (com -Dbejeweled.save=ficheiro), ou null
+    // O motor resolve cada jogada de uma vez e descreve-a num log de eventos; o painel mostra o seu
+    // próprio estado (shown), que vai sendo alterado à medida que as animações reproduzem o log
+    private final CascadeLog log = new CascadeLog();
+    private final byte[] shown; // Código da gema mostrada em cada posição (ou BoardEngine.EMPTY)
+    private int shownScore = 0; // Pontuação mostrada (sobe à medida que as explosões acontecem)
+    // Gemas que caem no passo de cascata em curso: posição de origem e número de linhas que cada uma cai
+    private final int[] fallFrom;
+    private final int[] fallRows;
+    private int fallCount = 0;
+    // Vista do tabuleiro: por omissão é desenhada num único componente (BoardCanvas);
+    // com -Dbejeweled.renderer=buttons usa a grelha de botões original
+    private final BoardView view;
+    // Posições em combinação no passo em curso (índice row * cols + col), reutilizadas em todas as cascatas
+    // As animações percorrem só estas listas, e não o tabuleiro todo, em cada passo do Animator
+    private final int[] matched;
+    private int matchedCount = 0;
     // Variáveis para guardar a seleção do utilizador
     private int selectedRow = -1, selectedCol = -1;
-    private Random random = new Random(); // Gerador de números aleatórios para as gemas
-    private int score = 0; // Pontuação do jogador
     private JLabel scoreLabel = new JLabel("Pontuação: 0"); // Label para mostrar a pontuação
     private boolean animating = false; // Estado para bloquear interação durante animações
-    private Image explosionImg = null;
+    private int hintMove = -1; // Jogada mostrada como dica (ver BoardEngine.findHint), ou -1
+    private final Timer hintTimer = new Timer(HINT_DELAY_MS, e -> showHint()); // Mostra uma dica após algum tempo sem jogar
+    // Instrumentação (ver GameEvents e GameMetrics): jogada e passo de cascata em curso
+    private GameEvents.Move moveEvent;
+    private GameEvents.Cascade cascadeEvent;
+    private int cascadeDepth = 0; // Passos de cascata da jogada em curso
+    // Painel de métricas (F3 ou -Dbejeweled.overlay=true) e registo periódico (-Dbejeweled.metrics=segundos)
+    private final JLabel metricsLabel = new JLabel();
+    private GameMetrics overlayMetrics;
+    private final Timer overlayTimer = new Timer(OVERLAY_REFRESH_MS, e -> metricsLabel.setText(overlayMetrics.drain()));
+    private GameMetrics dumpMetrics;
+    private Timer dumpTimer;
+    private final SoundPlayer sounds = new SoundPlayer(4); // Sons pré-carregados, tocados fora da thread do Swing
+    // Relógio único de todas as animações: em cada passo repõe o tabuleiro, aplica os tweens e redesenha
+    private final Animator animator = new Animator(ANIMATION_STEP_MS, this::resetTouched, this::showFrame);
+    // Posições em que as animações desenharam no último passo (são repostas no início do passo seguinte)
+    private int[] touched = new int[64];
+    private int touchedCount = 0;
+    private final boolean[] isTouched;
+    // Frames pré-desenhados: criados uma vez e reutilizados em todas as animações
+    private final ImageIcon emptyIcon;
+    private final Icon[] typeIcons; // Ícone de cada GemType no tamanho gemSize (pedidos uma vez ao GemIcons)
+    private FadeFrames explosionFrames; // Criados depois de carregar a imagem de explosão
 
-    // Construtor: inicializa o painel e o tabuleiro
+    // Construtor: inicializa o painel e o tabuleiro com o tamanho por omissão
     public GameBoard() {
+        this(DEFAULT_ROWS, DEFAULT_COLS, DEFAULT_GEM_SIZE);
+    }
+
+    // Construtor: inicializa o painel e um tabuleiro de rows x cols, com gemas de gemSize píxeis
+    // A semente é aleatória, ou a indicada com -Dbejeweled.seed=N; com -Dbejeweled.record=ficheiro
+    // a sessão é gravada para poder ser reproduzida (ver Replay)
+    // Com -Dbejeweled.practice=true, Ctrl+Z desfaz e Ctrl+Y refaz jogadas; com -Dbejeweled.save=ficheiro,
+    // o jogo guardado nesse ficheiro é retomado e Ctrl+S (ou fechar a janela) guarda-o
+    // Um jogo com jogadas desfeitas ou retomado não pode ser reproduzido a partir da semente, por isso não é gravado
+    public GameBoard(int rows, int cols, int gemSize) {
+        this(rows, cols, gemSize, Long.getLong("bejeweled.seed", new Random().nextLong()));
+        System.out.println("Semente do jogo: " + seed);
+        boolean resumed = false;
+        String save = System.getProperty("bejeweled.save");
+        if (save != null) {
+            saveFile = Paths.get(save);
+            resumed = Files.exists(saveFile) && resumeGame();
+        }
+        if (Boolean.getBoolean("bejeweled.practice")) {
+            history = new UndoHistory(UNDO_CAPACITY);
+        }
+        setUpSaveKeys();
+        String file = System.getProperty("bejeweled.record");
+        if (file != null && (resumed || history != null)) {
+            System.err.println("Jogo retomado ou em modo de treino: a sessão não é gravada");
+        } else if (file != null) {
+            try {
+                recorder = new Replay.Recorder(Paths.get(file), rows, cols, seed, engine.isSafeRefill());
+            } catch (IOException e) {
+                System.err.println("Não foi possível gravar a sessão em " + file + ": " + e.getMessage());
+            }
+        }
+    }
+
+    // Construtor: tabuleiro de rows x cols com a semente indicada (a mesma semente dá o mesmo tabuleiro)
+    // Tabuleiros maiores do que a janela ficam dentro de uma área com barras de deslocamento
+    public GameBoard(int rows, int cols, int gemSize, long seed) {
+        this.rows = rows;
+        this.cols = cols;
+        this.gemSize = gemSize;
+        this.seed = seed;
+        this.engine = new BoardEngine(rows, cols, new SplittableRandom(seed));
+        this.matched = new int[rows * cols];
+        this.shown = new byte[rows * cols];
+        this.fallFrom = new int[rows * cols];
+        this.fallRows = new int[rows * cols];
+        this.isTouched = new boolean[rows * cols];
+        this.emptyIcon = createEmptyIcon(gemSize);
+        this.typeIcons = new Icon[GemType.values().length];
+        for (GemType type : GemType.values()) {
+            typeIcons[type.ordinal()] = GemIcons.get(type, gemSize);
+        }
         setLayout(new BorderLayout()); // Usamos BorderLayout para ter espaço para a pontuação
-        JPanel gridPanel = new JPanel(new GridLayout(ROWS, COLS));
         // Inicializa o tabuleiro e interface
-        initBoard();
-        // Cria os botões e adiciona ao painel
-        for (int row = 0; row < ROWS; row++) {
-            for (int col = 0; col < COLS; col++) {
-                JButton btn = new JButton();
-                btn.setIcon(resizeIcon(board[row][col].getIcon(), GEM_SIZE, GEM_SIZE));
-                btn.setPreferredSize(new Dimension(GEM_SIZE, GEM_SIZE));
-                final int r = row, c = col;
-                btn.addActionListener(e -> handleGemClick(r, c));
-                buttons[row][col] = btn;
-                gridPanel.add(btn);
-            }
+        engine.initBoard(true); // Sem combinações e com pelo menos uma jogada possível
+        syncShown();
+        // Cria a vista do tabuleiro e adiciona ao painel
+        // (a grelha de botões só é usada em tabuleiros pequenos)
+        if ("buttons".equals(System.getProperty("bejeweled.renderer")) && rows * cols <= MAX_BUTTON_CELLS) {
+            view = new ButtonGridView(rows, cols, gemSize, this::handleGemClick);
+        } else {
+            view = new BoardCanvas(rows, cols, gemSize, this::handleGemClick);
         }
-        add(gridPanel, BorderLayout.CENTER);
+        // Só se vê (e só se desenha) a parte do tabuleiro que cabe na janela
+        JScrollPane scroll = new JScrollPane(view.getComponent());
+        scroll.setBorder(null);
+        scroll.getVerticalScrollBar().setUnitIncrement(gemSize);
+        scroll.getHorizontalScrollBar().setUnitIncrement(gemSize);
+        add(scroll, BorderLayout.CENTER);
         scoreLabel.setHorizontalAlignment(SwingConstants.CENTER);
         add(scoreLabel, BorderLayout.NORTH);
+        setUpMetrics();
         updateBoard();
-        try {
-            explosionImg = new ImageIcon("explosion/explosion.png").getImage();
-            if (explosionImg == null || explosionImg.getWidth(null) == -1) {
-                // Se falhar, tenta caminho absoluto
-                explosionImg = new ImageIcon("C:/Users/luisl/Desktop/bejeweled/explosion/explosion.png").getImage();
-                if (explosionImg == null || explosionImg.getWidth(null) == -1) {
-                    System.err.println("Imagem de explosão não encontrada!");
-                } else {
-                    System.out.println("Imagem de explosão carregada via caminho absoluto.");
-                }
-            } else {
-                System.out.println("Imagem de explosão carregada via caminho relativo.");
+        hintTimer.setRepeats(false);
+        // As imagens são carregadas em segundo plano (ver Assets); o tabuleiro é redesenhado
+        // quando o atlas das gemas estiver pronto, e a explosão usa um círculo vermelho até lá
+        GemIcons.atlas(gemSize).thenRunAsync(view::repaintAll, SwingUtilities::invokeLater);
+        explosionFrames = new FadeFrames(null, gemSize, 1.0f, EXPLOSION_STEPS);
+        Assets.image(Assets.EXPLOSION_IMAGE)
+                .thenApplyAsync(img -> new FadeFrames(img, gemSize, 1.0f, EXPLOSION_STEPS), Assets.loader())
+                .thenAcceptAsync(frames -> explosionFrames = frames, SwingUtilities::invokeLater);
+    }
+
+    // Devolve o ícone (já no tamanho gemSize) da gema na posição indicada, ou o ícone vazio
+    // Os ícones vêm da cache partilhada GemIcons (guardados em typeIcons), por isso nada é redimensionado aqui
+    private Icon gemIcon(int row, int col) {
+        byte code = shown[row * cols + col];
+        return code == BoardEngine.EMPTY ? emptyIcon() : typeIcons[code];
+    }
+
+    // Tipo da gema mostrada na posição de índice i (null se estiver vazia)
+    private GemType shownType(int i) {
+        return shown[i] == BoardEngine.EMPTY ? null : GemType.values()[shown[i]];
+    }
+
+    // Copia o estado do motor para o estado mostrado (no início e no fim de cada jogada)
+    private void syncShown() {
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                shown[row * cols + col] = engine.getCode(row, col);
             }
-        } catch (Exception e) {
-            System.err.println("Não foi possível carregar a imagem de explosão.");
         }
+        shownScore = engine.getScore();
+    }
+
+    // Atualiza os ícones do tabuleiro para corresponder ao estado do jogo e redesenha
+    // (visível no pacote para poder ser medido pelos benchmarks)
+    void updateBoard() {
+        refreshIcons();
+        showFrame();
     }
 
-    // Inicializa o tabuleiro com gemas aleatórias
-    private void initBoard() {
-        for (int row = 0; row < ROWS; row++) {
-            for (int col = 0; col < COLS; col++) {
-                GemType type = GemType.values()[random.nextInt(GemType.values().length)];
-                board[row][col] = new Gem(type);
+    // Põe em cada posição o ícone que corresponde ao estado do jogo
+    // Agora é robusto: se a posição estiver vazia, mostra um botão vazio (ou cinzento)
+    // Só é chamado quando o estado mostrado muda (fim de uma fase); entre fases, o Animator só
+    // repõe as posições onde as animações desenharam (resetTouched)
+    private void refreshIcons() {
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                // Mostra a gema, ou um botão vazio (um quadrado cinzento)
+                view.setIcon(row, col, gemIcon(row, col));
+                view.setSelected(row, col, false);
             }
         }
-        // Garante que não há combinações iniciais
-        while (hasCombination()) {
-            for (int row = 0; row < ROWS; row++) {
-                for (int col = 0; col < COLS; col++) {
-                    GemType type = GemType.values()[random.nextInt(GemType.values().length)];
-                    board[row][col] = new Gem(type);
-                }
-            }
+        clearTouched();
+    }
+
+    // Desenha um ícone de animação numa posição, que é reposta no início do passo seguinte
+    private void drawCell(int row, int col, Icon icon) {
+        view.setIcon(row, col, icon);
+        int i = row * cols + col;
+        if (isTouched[i]) return;
+        isTouched[i] = true;
+        if (touchedCount == touched.length) touched = java.util.Arrays.copyOf(touched, touched.length * 2);
+        touched[touchedCount++] = i;
+    }
+
+    // Início de cada passo do Animator: repõe o estado mostrado só nas posições desenhadas no passo anterior
+    // (num tabuleiro grande, repor todas as posições em cada passo gastaria o tempo todo do passo)
+    private void resetTouched() {
+        for (int t = 0; t < touchedCount; t++) {
+            int i = touched[t];
+            view.setIcon(i / cols, i % cols, gemIcon(i / cols, i % cols));
         }
+        clearTouched();
     }
 
-    // Atualiza os ícones dos botões para corresponder ao estado do tabuleiro
-    // Agora é robusto: se board[row][col] == null, mostra um botão vazio (ou cinzento)
-    private void updateBoard() {
-        for (int row = 0; row < ROWS; row++) {
-            for (int col = 0; col < COLS; col++) {
-                if (board[row][col] != null) {
-                    buttons[row][col].setIcon(resizeIcon(board[row][col].getIcon(), GEM_SIZE, GEM_SIZE));
-                } else {
-                    // Mostra um botão vazio (ou um quadrado cinzento)
-                    buttons[row][col].setIcon(emptyIcon());
-                }
-                buttons[row][col].setBorder(null);
-            }
+    private void clearTouched() {
+        for (int t = 0; t < touchedCount; t++) {
+            isTouched[touched[t]] = false;
         }
-        scoreLabel.setText("Pontuação: " + score);
-        revalidate();
-        repaint();
+        touchedCount = 0;
+    }
+
+    // Mostra a pontuação e redesenha as posições que mudaram (sem revalidar o layout)
+    private void showFrame() {
+        scoreLabel.setText("Pontuação: " + shownScore);
+        view.flush();
     }
 
-    // Cria um ícone cinzento para posições vazias
+    // Devolve o ícone cinzento (partilhado) para posições vazias
     private ImageIcon emptyIcon() {
-        BufferedImage img = new BufferedImage(GEM_SIZE, GEM_SIZE, BufferedImage.TYPE_INT_RGB);
+        return emptyIcon;
+    }
+
+    // Cria o ícone cinzento para posições vazias
+    private static ImageIcon createEmptyIcon(int size) {
+        BufferedImage img = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
         Graphics2D g2 = img.createGraphics();
         g2.setColor(Color.LIGHT_GRAY);
-        g2.fillRect(0, 0, GEM_SIZE, GEM_SIZE);
+        g2.fillRect(0, 0, size, size);
         g2.dispose();
         return new ImageIcon(img);
     }
 
-    // Redimensiona o ícone da gema para o tamanho desejado
-    private ImageIcon resizeIcon(ImageIcon icon, int width, int height) {
-        Image img = icon.getImage();
-        Image resized = img.getScaledInstance(width, height, Image.SCALE_SMOOTH);
-        return new ImageIcon(resized);
+    // Lida com o clique numa gema (e mede quanto tempo a thread do Swing gastou com ele)
+    private void handleGemClick(int row, int col) {
+        GameEvents.Click event = new GameEvents.Click();
+        event.begin();
+        long start = System.nanoTime();
+        try {
+            processClick(row, col);
+        } finally {
+            event.row = row;
+            event.col = col;
+            event.commit();
+            GameMetrics.click(System.nanoTime() - start);
+        }
     }
 
-    // Lida com o clique numa gema
-    private void handleGemClick(int row, int col) {
+    private void processClick(int row, int col) {
         if (animating) return; // Bloqueia interação durante animações
+        clearHint();
         if (selectedRow == -1 && selectedCol == -1) {
             selectedRow = row;
             selectedCol = col;
-            buttons[row][col].setBorder(BorderFactory.createLineBorder(Color.YELLOW, 3));
+            view.setSelected(row, col, true);
+            view.flush();
         } else {
-            if (isAdjacent(selectedRow, selectedCol, row, col)) {
+            if (engine.isAdjacent(selectedRow, selectedCol, row, col)) {
                 // Guardar os valores antes de limpar a seleção!
                 final int prevRow = selectedRow;
                 final int prevCol = selectedCol;
                 final int targetRow = row;
                 final int targetCol = col;
                 animating = true;
+                moveEvent = new GameEvents.Move();
+                moveEvent.begin();
+                cascadeDepth = 0;
+                BoardSnapshot before = history != null ? engine.snapshot() : null;
+                // As regras resolvem já a jogada inteira; as animações só mostram o que está no log
+                engine.playMove(prevRow, prevCol, targetRow, targetCol, log);
+                // Só as trocas aceites (o primeiro evento é sempre a troca, SWAP) podem ser desfeitas
+                if (before != null && log.arg(0) == 1) history.record(before);
+                recordMove(prevRow, prevCol, targetRow, targetCol);
                 animateSlide(prevRow, prevCol, targetRow, targetCol, () -> {
-                    swapGems(prevRow, prevCol, targetRow, targetCol);
-                    if (hasCombination()) {
-                        animateCombinations();
+                    swapShown(prevRow, prevCol, targetRow, targetCol);
+                    if (log.arg(0) == 1) { // O primeiro evento é sempre a troca (SWAP)
+                        animateCombinations(1);
                     } else {
                         animateSlide(targetRow, targetCol, prevRow, prevCol, () -> {
-                            swapGems(prevRow, prevCol, targetRow, targetCol);
+                            swapShown(prevRow, prevCol, targetRow, targetCol);
                             updateBoard();
-                            animating = false;
+                            finishMove(1);
                         });
                     }
                 });
             }
-            buttons[selectedRow][selectedCol].setBorder(null);
+            view.setSelected(selectedRow, selectedCol, false);
+            view.flush();
             selectedRow = selectedCol = -1;
         }
     }
 
-    // Verifica se duas posições são adjacentes (vizinho direto)
-    private boolean isAdjacent(int r1, int c1, int r2, int c2) {
-        return (Math.abs(r1 - r2) == 1 && c1 == c2) || (Math.abs(c1 - c2) == 1 && r1 == r2);
+    // Troca duas gemas no estado mostrado
+    private void swapShown(int r1, int c1, int r2, int c2) {
+        int a = r1 * cols + c1, b = r2 * cols + c2;
+        byte temp = shown[a];
+        shown[a] = shown[b];
+        shown[b] = temp;
     }
 
-    // Troca duas gemas de posição no tabuleiro
-    private void swapGems(int r1, int c1, int r2, int c2) {
-        Gem temp = board[r1][c1];
-        board[r1][c1] = board[r2][c2];
-        board[r2][c2] = temp;
+    // Chamado quando a animação de uma jogada (e da sua cascata) termina; event é o próximo evento do log
+    // Se o motor baralhou o tabuleiro por ter ficado sem jogadas possíveis, mostra-o já baralhado
+    private void finishMove(int event) {
+        animating = false;
+        syncShown(); // O estado mostrado já é igual ao do motor; isto só garante que continua assim
+        if (moveEvent != null) {
+            moveEvent.valid = cascadeDepth > 0;
+            moveEvent.cascades = cascadeDepth;
+            moveEvent.score = engine.getScore();
+            moveEvent.commit();
+            moveEvent = null;
+            GameMetrics.move(cascadeDepth, engine.getScore());
+        }
+        if (event < log.size() && log.type(event) == CascadeLog.SHUFFLE) {
+            updateBoard();
+            scoreLabel.setText("Pontuação: " + engine.getScore() + " (sem jogadas: tabuleiro baralhado)");
+        }
+        hintTimer.restart();
     }
 
-    // Função para verificar se existe alguma combinação no tabuleiro
-    // Retorna true se houver pelo menos uma linha/coluna de 3 ou mais gemas iguais
-    private boolean hasCombination() {
-        return !getCombinationPositions().isEmpty();
+    // Grava a troca que o motor acabou de resolver (se a sessão estiver a ser gravada)
+    // Se a gravação falhar, o jogo continua sem gravar
+    private void recordMove(int r1, int c1, int r2, int c2) {
+        if (recorder == null) return;
+        try {
+            recorder.record(r1, c1, r2, c2, engine.getScore());
+        } catch (IOException e) {
+            System.err.println("Erro ao gravar a sessão: " + e.getMessage());
+            closeRecorder();
+        }
     }
 
-    // Função que devolve um conjunto de posições (row,col) que fazem parte de combinações
-    private Set<Point> getCombinationPositions() {
-        Set<Point> toRemove = new HashSet<>();
-        // Verifica linhas
-        for (int row = 0; row < ROWS; row++) {
-            int count = 1;
-            for (int col = 1; col < COLS; col++) {
-                if (board[row][col].getType() == board[row][col-1].getType()) {
-                    count++;
-                } else {
-                    if (count >= 3) {
-                        for (int k = 0; k < count; k++) {
-                            toRemove.add(new Point(row, col-1-k));
-                        }
-                    }
-                    count = 1;
-                }
-            }
-            if (count >= 3) {
-                for (int k = 0; k < count; k++) {
-                    toRemove.add(new Point(row, COLS-1-k));
-                }
-            }
+    private void closeRecorder() {
+        if (recorder == null) return;
+        try {
+            recorder.close();
+        } catch (IOException e) {
+            System.err.println("Erro ao fechar a gravação: " + e.getMessage());
         }
-        // Verifica colunas
-        for (int col = 0; col < COLS; col++) {
-            int count = 1;
-            for (int row = 1; row < ROWS; row++) {
-                if (board[row][col].getType() == board[row-1][col].getType()) {
-                    count++;
-                } else {
-                    if (count >= 3) {
-                        for (int k = 0; k < count; k++) {
-                            toRemove.add(new Point(row-1-k, col));
-                        }
-                    }
-                    count = 1;
-                }
-            }
-            if (count >= 3) {
-                for (int k = 0; k < count; k++) {
-                    toRemove.add(new Point(ROWS-1-k, col));
-                }
-            }
+        recorder = null;
+    }
+
+    // Métodos usados pelo Replay para conduzir o tabuleiro (visíveis no pacote)
+    boolean isAnimating() {
+        return animating;
+    }
+
+    int getScore() {
+        return engine.getScore();
+    }
+
+    // Faz uma troca como se o jogador clicasse nas duas gemas
+    void playSwap(int r1, int c1, int r2, int c2) {
+        if (selectedRow != -1) {
+            view.setSelected(selectedRow, selectedCol, false);
+            selectedRow = selectedCol = -1;
         }
-        return toRemove;
+        handleGemClick(r1, c1);
+        handleGemClick(r2, c2);
+    }
+
+    // Mostra como dica as duas gemas de uma jogada válida
+    private void showHint() {
+        if (animating) return;
+        hintMove = engine.findHint();
+        if (hintMove < 0) return;
+        view.setSelected(engine.moveRow(hintMove), engine.moveCol(hintMove), true);
+        view.setSelected(engine.moveTargetRow(hintMove), engine.moveTargetCol(hintMove), true);
+        view.flush();
     }
 
-    // Utilitário para tocar um ficheiro de som wav
+    // Esconde a dica (se estiver visível) e volta a contar o tempo até à próxima
+    private void clearHint() {
+        if (hintMove >= 0) {
+            view.setSelected(engine.moveRow(hintMove), engine.moveCol(hintMove), false);
+            view.setSelected(engine.moveTargetRow(hintMove), engine.moveTargetCol(hintMove), false);
+            view.flush();
+            hintMove = -1;
+        }
+        hintTimer.restart();
+    }
+
+    // Utilitário para tocar um som (não bloqueia: o som toca numa thread própria)
     private void playSound(String filename) {
-        try {
-            File soundFile = new File(filename);
-            if (!soundFile.exists()) return;
-            AudioInputStream audioIn = AudioSystem.getAudioInputStream(soundFile);
-            Clip clip = AudioSystem.getClip();
-            clip.open(audioIn);
-            clip.start();
-        } catch (Exception e) {
-            System.err.println("Erro ao tocar som: " + filename + " - " + e.getMessage());
+        sounds.play(filename);
+    }
+
+    // Quando o painel é posto numa janela, começa a contar o tempo até à dica e abre já os Clips
+    // dos sons (na thread de áudio), para a primeira jogada não ter de esperar
+    // Um painel que nunca é mostrado (por exemplo, nos benchmarks) não tem timers nem sons
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        hintTimer.start();
+        sounds.load(SoundPlayer.SWAP);
+        sounds.load(SoundPlayer.EXPLOSION);
+    }
+
+    // Quando o painel é removido da janela, liberta os recursos de áudio
+    @Override
+    public void removeNotify() {
+        super.removeNotify();
+        hintTimer.stop();
+        sounds.close();
+        closeRecorder();
+        saveGame();
+        recordHighScore();
+        overlayTimer.stop();
+        if (overlayMetrics != null) overlayMetrics.close();
+        if (dumpTimer != null) {
+            dumpTimer.stop();
+            dumpMetrics.close();
         }
     }
 
-    // Animação de deslize (slide) entre duas gemas adjacentes
-    private void animateSlide(int r1, int c1, int r2, int c2, Runnable onComplete) {
-        playSound("sounds/swap.wav"); // Efeito sonoro de troca
-        final int frames = 8;
-        final ImageIcon icon1 = (board[r1][c1] != null) ? resizeIcon(board[r1][c1].getIcon(), GEM_SIZE, GEM_SIZE) : emptyIcon();
-        final ImageIcon icon2 = (board[r2][c2] != null) ? resizeIcon(board[r2][c2].getIcon(), GEM_SIZE, GEM_SIZE) : emptyIcon();
-        Timer timer = new Timer(20, null);
-        timer.addActionListener(new ActionListener() {
-            int step = 0;
+    // Teclas para desfazer/refazer (modo de treino) e para guardar o jogo
+    private void setUpSaveKeys() {
+        if (history != null) {
+            bindKey("ctrl Z", "undo", () -> {
+                if (history.undo(engine)) showRestored();
+            });
+            bindKey("ctrl Y", "redo", () -> {
+                if (history.redo(engine)) showRestored();
+            });
+        }
+        if (saveFile != null) bindKey("ctrl S", "save", this::saveGame);
+    }
+
+    // Associa uma tecla a uma ação (ignorada durante as animações: o motor já está à frente do que se vê)
+    private void bindKey(String key, String name, Runnable action) {
+        getInputMap(WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(key), name);
+        getActionMap().put(name, new AbstractAction() {
+            @Override
             public void actionPerformed(ActionEvent e) {
-                step++;
-                // Desenha os ícones "a meio caminho" (simulação simples)
-                // Para efeito visual, alterna os ícones entre os botões
-                if (step % 2 == 0) {
-                    buttons[r1][c1].setIcon(icon2);
-                    buttons[r2][c2].setIcon(icon1);
-                } else {
-                    buttons[r1][c1].setIcon(icon1);
-                    buttons[r2][c2].setIcon(icon2);
-                }
-                if (step >= frames) {
-                    timer.stop();
-                    onComplete.run();
-                }
+                if (!animating) action.run();
             }
         });
-        timer.start();
     }
 
-    // Mostra a imagem de explosão estática em todas as posições a explodir, depois chama onComplete após delay
-    private void showExplosionImages(Set<Point> toExplode, Runnable onComplete) {
-        for (Point p : toExplode) {
-            buttons[p.x][p.y].setIcon(explosionIcon(1.0f, 1.0f)); // explosão tamanho normal, totalmente opaca
+    // Mostra o tabuleiro depois de o motor voltar a uma fotografia (desfazer, refazer ou retomar)
+    private void showRestored() {
+        clearHint();
+        if (selectedRow != -1) {
+            view.setSelected(selectedRow, selectedCol, false);
+            selectedRow = selectedCol = -1;
         }
+        syncShown();
         updateBoard();
-        playSound("sounds/explosion.wav"); // Toca o som exatamente quando as imagens aparecem
-        // Espera 300ms antes de iniciar o fade-out
-        new Timer(300, new ActionListener() {
-            public void actionPerformed(ActionEvent e) {
-                ((Timer)e.getSource()).stop();
-                onComplete.run();
-            }
-        }).start();
     }
 
-    // Animação de fade-out da explosão, com som sincronizado
-    private void animateExplosionFade(Set<Point> toExplode, Runnable onComplete) {
-        final int frames = 10;
-        Timer timer = new Timer(40, null);
-        timer.addActionListener(new ActionListener() {
-            int step = 0;
+    // Retoma o jogo guardado em saveFile; devolve false (e continua com o tabuleiro novo) se não conseguir
+    private boolean resumeGame() {
+        try {
+            engine.restore(BoardSnapshot.load(saveFile));
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Não foi possível retomar o jogo de " + saveFile + ": " + e.getMessage());
+            return false;
+        }
+        showRestored();
+        System.out.println("Jogo retomado de " + saveFile);
+        return true;
+    }
+
+    // Guarda o tabuleiro e a pontuação em saveFile (se o jogo estiver a ser guardado)
+    private void saveGame() {
+        if (saveFile == null) return;
+        try {
+            engine.snapshot().save(saveFile);
+        } catch (IOException e) {
+            System.err.println("Erro ao guardar o jogo em " + saveFile + ": " + e.getMessage());
+        }
+    }
+
+    // Regista o resultado na tabela de recordes (com -Dbejeweled.scores=ficheiro) quando o jogo termina
+    // O jogador é o indicado com -Dbejeweled.player=nome ou o utilizador do sistema; os jogos em modo
+    // de treino ou guardados para continuar mais tarde não contam
+    private void recordHighScore() {
+        String file = System.getProperty("bejeweled.scores");
+        if (file == null || history != null || saveFile != null || engine.getScore() == 0) return;
+        String player = System.getProperty("bejeweled.player", System.getProperty("user.name", "anónimo"));
+        try (HighScores scores = HighScores.open(Paths.get(file))) {
+            scores.add(engine.getScore(), seed, player);
+            System.out.println("Resultado registado: " + engine.getScore() + " (melhor de " + player + ": "
+                    + scores.top(player, 1).get(0).getScore() + ")");
+        } catch (IOException e) {
+            System.err.println("Erro ao registar o resultado em " + file + ": " + e.getMessage());
+        }
+    }
+
+    // Prepara o painel de métricas (escondido, a não ser com -Dbejeweled.overlay=true; F3 mostra/esconde)
+    // e, com -Dbejeweled.metrics=N, o registo das métricas na consola a cada N segundos
+    private void setUpMetrics() {
+        metricsLabel.setFont(metricsLabel.getFont().deriveFont(10f));
+        metricsLabel.setVisible(false);
+        add(metricsLabel, BorderLayout.SOUTH);
+        getInputMap(WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke("F3"), "metrics");
+        getActionMap().put("metrics", new AbstractAction() {
+            @Override
             public void actionPerformed(ActionEvent e) {
-                float scale = 1.0f;
-                float alpha = 1.0f - (float)step/frames;
-                for (Point p : toExplode) {
-                    buttons[p.x][p.y].setIcon(explosionIcon(scale, alpha));
-                }
-                updateBoard();
-                step++;
-                if (step > frames) {
-                    timer.stop();
-                    onComplete.run();
-                }
+                setOverlayVisible(!metricsLabel.isVisible());
             }
         });
-        timer.start();
+        if (Boolean.getBoolean("bejeweled.overlay")) setOverlayVisible(true);
+        int seconds = Integer.getInteger("bejeweled.metrics", 0);
+        if (seconds > 0) {
+            dumpMetrics = GameMetrics.open();
+            dumpTimer = new Timer(seconds * 1000, e -> System.out.println("[métricas] " + dumpMetrics.drain()));
+            dumpTimer.start();
+        }
     }
 
-    // Cria um ícone de explosão redimensionado e com transparência
-    private ImageIcon explosionIcon(float scale, float alpha) {
-        int size = (int)(GEM_SIZE * scale);
-        BufferedImage img = new BufferedImage(GEM_SIZE, GEM_SIZE, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g2 = img.createGraphics();
-        g2.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, alpha));
-        int x = (GEM_SIZE-size)/2, y = (GEM_SIZE-size)/2;
-        if (explosionImg != null && explosionImg.getWidth(null) > 0)
-            g2.drawImage(explosionImg, x, y, size, size, null);
-        else {
-            g2.setColor(Color.RED);
-            g2.fillOval(x, y, size, size);
+    // Mostra ou esconde o painel de métricas (só mede enquanto está visível)
+    private void setOverlayVisible(boolean visible) {
+        if (visible == (overlayMetrics != null)) return;
+        if (visible) {
+            overlayMetrics = GameMetrics.open();
+            metricsLabel.setText("A medir...");
+            overlayTimer.start();
+        } else {
+            overlayTimer.stop();
+            overlayMetrics.close();
+            overlayMetrics = null;
         }
-        g2.dispose();
-        return new ImageIcon(img);
+        metricsLabel.setVisible(visible);
+        Window window = SwingUtilities.getWindowAncestor(this);
+        if (window != null) window.pack(); // A janela não é redimensionável: ajusta-a à nova altura
+    }
+
+    // Envolve o onComplete de uma fase de animação para registar a sua duração real (evento JFR)
+    // Se o Swing se atrasar, a fase dura mais do que o previsto
+    private Runnable phase(String name, int plannedMillis, Runnable onComplete) {
+        GameEvents.AnimationPhase event = new GameEvents.AnimationPhase();
+        event.begin();
+        return () -> {
+            event.phase = name;
+            event.plannedMillis = plannedMillis;
+            event.commit();
+            onComplete.run();
+        };
+    }
+
+    // Animação de deslize (slide) entre duas gemas adjacentes
+    private void animateSlide(int r1, int c1, int r2, int c2, Runnable onComplete) {
+        playSound(SoundPlayer.SWAP); // Efeito sonoro de troca
+        final Icon icon1 = gemIcon(r1, c1);
+        final Icon icon2 = gemIcon(r2, c2);
+        animator.play(SLIDE_MS, progress -> {
+            int step = (int) (progress * SLIDE_FRAMES);
+            // Desenha os ícones "a meio caminho" (simulação simples)
+            // Para efeito visual, alterna os ícones entre as posições
+            if (step % 2 == 0) {
+                drawCell(r1, c1, icon2);
+                drawCell(r2, c2, icon1);
+            } else {
+                drawCell(r1, c1, icon1);
+                drawCell(r2, c2, icon2);
+            }
+        }, phase("slide", SLIDE_MS, onComplete));
+    }
+
+    // Mostra a imagem de explosão estática nas count primeiras posições de toExplode, depois chama onComplete após delay
+    private void showExplosionImages(int[] toExplode, int count, Runnable onComplete) {
+        playSound(SoundPlayer.EXPLOSION); // Toca o som exatamente quando as imagens aparecem
+        // Mantém a explosão (tamanho normal, totalmente opaca) durante 300ms antes de iniciar o fade-out
+        animator.play(EXPLOSION_HOLD_MS, progress -> {
+            for (int k = 0; k < count; k++) {
+                int i = toExplode[k];
+                drawCell(i / cols, i % cols, explosionFrames.frame(0));
+            }
+        }, phase("explosion", EXPLOSION_HOLD_MS, onComplete));
+    }
+
+    // Animação de fade-out da explosão, com som sincronizado
+    private void animateExplosionFade(int[] toExplode, int count, Runnable onComplete) {
+        animator.play(EXPLOSION_FADE_MS, progress -> {
+            // Frame pré-desenhado com opacidade 1 - progresso
+            ImageIcon frame = explosionFrames.frame((int) (progress * EXPLOSION_STEPS));
+            for (int k = 0; k < count; k++) {
+                int i = toExplode[k];
+                drawCell(i / cols, i % cols, frame);
+            }
+        }, phase("explosionFade", EXPLOSION_FADE_MS, onComplete));
     }
 
     // MÉTODO PRINCIPAL DE ANIMAÇÃO (substitui processCombinations):
-    private void animateCombinations() {
+    // Reproduz um passo de cascata do log, a começar no evento indicado, e depois o passo seguinte
+    private void animateCombinations(int event) {
         animating = true;
-        Set<Point> toRemove = getCombinationPositions();
-        if (toRemove.isEmpty()) {
-            animating = false;
+        if (event >= log.size() || log.type(event) != CascadeLog.STEP) {
             updateBoard();
+            finishMove(event);
             return;
         }
-        score += toRemove.size() * 10;
-        updateBoard();
+        cascadeDepth = log.arg(event);
+        cascadeEvent = new GameEvents.Cascade();
+        cascadeEvent.begin();
+        // Lê os eventos do passo: gemas em combinação, pontos, quedas e gemas novas
+        matchedCount = fallCount = 0;
+        int points = 0, e = event + 1;
+        for (; e < log.size() && log.type(e) == CascadeLog.MATCH; e++) {
+            matched[matchedCount++] = log.index(e);
+        }
+        for (; e < log.size() && log.type(e) == CascadeLog.SCORE; e++) {
+            points += log.arg(e);
+        }
+        int firstFall = e;
+        for (; e < log.size() && log.type(e) == CascadeLog.FALL; e++) {
+            fallFrom[fallCount] = log.index(e) - log.arg(e) * cols;
+            fallRows[fallCount++] = log.arg(e);
+        }
+        int firstSpawn = e, next = e;
+        while (next < log.size() && log.type(next) == CascadeLog.SPAWN) next++;
+        final int gained = points, removed = matchedCount, end = next;
         // 1. Mostra imagem de explosão
-        showExplosionImages(toRemove, () -> {
+        showExplosionImages(matched, matchedCount, () -> {
             // 2. Fade-out + som sincronizado
-            animateExplosionFade(toRemove, () -> {
-                // 3. Remover gemas, aplicar gravidade, etc.
-                for (Point p : toRemove) {
-                    board[p.x][p.y] = null;
+            animateExplosionFade(matched, matchedCount, () -> {
+                // 3. Remover gemas (e somar a pontuação), aplicar gravidade, etc.
+                for (int k = 0; k < matchedCount; k++) {
+                    shown[matched[k]] = BoardEngine.EMPTY;
                 }
-                animateGravity(() -> {
-                    fillEmptySpaces();
-                    updateBoard();
-                    if (hasCombination()) {
-                        animateCombinations();
-                    } else {
-                        animating = false;
+                shownScore += gained;
+                animateGravity(fallFrom, fallRows, fallCount, () -> {
+                    // As quedas vêm de baixo para cima em cada coluna, por isso o destino já está livre
+                    for (int f = firstFall; f < firstSpawn; f++) {
+                        int to = log.index(f), from = to - log.arg(f) * cols;
+                        shown[to] = shown[from];
+                        shown[from] = BoardEngine.EMPTY;
                     }
+                    for (int f = firstSpawn; f < end; f++) {
+                        shown[log.index(f)] = (byte) log.arg(f);
+                    }
+                    cascadeEvent.depth = cascadeDepth;
+                    cascadeEvent.gems = removed;
+                    cascadeEvent.score = shownScore;
+                    cascadeEvent.commit();
+                    updateBoard();
+                    animateCombinations(end);
                 });
             });
         });
     }
 
-    // CLASSE PARA ANIMAÇÃO DE FADE-OUT
-    private class FadeOutAnimation {
-        private final Set<Point> points;
-        private final Runnable onComplete;
-        private int step = 0;
-        private final int maxSteps = 7;
-        private final Timer timer;
-
-        FadeOutAnimation(Set<Point> points, Runnable onComplete) {
-            this.points = points;
-            this.onComplete = onComplete;
-            this.timer = new Timer(40, null); // 40ms por frame
-            this.timer.addActionListener(e -> animateStep());
-        }
-        void start() { timer.start(); }
-        private void animateStep() {
-            for (Point p : points) {
-                JButton btn = buttons[p.x][p.y];
-                btn.setIcon(fadeIcon(board[p.x][p.y].getIcon(), 1.0f - (float)step/maxSteps));
-            }
-            updateBoard();
-            step++;
-            if (step > maxSteps) {
-                timer.stop();
-                onComplete.run();
-            }
-        }
-    }
-
-    // Função utilitária para criar um ícone com opacidade reduzida
-    private ImageIcon fadeIcon(ImageIcon icon, float alpha) {
-        Image img = icon.getImage();
-        BufferedImage faded = new BufferedImage(GEM_SIZE, GEM_SIZE, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g2 = faded.createGraphics();
-        g2.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, alpha));
-        g2.drawImage(img, 0, 0, GEM_SIZE, GEM_SIZE, null);
-        g2.dispose();
-        return new ImageIcon(faded);
-    }
-
     // ANIMAÇÃO DA QUEDA DAS GEMAS
-    private void animateGravity(Runnable onComplete) {
-        final int steps = 8; // Número de frames da animação
-        boolean[][] moved = new boolean[ROWS][COLS];
-        // Calcula para cada coluna quantas gemas vão cair
-        for (int col = 0; col < COLS; col++) {
-            int empty = ROWS - 1;
-            for (int row = ROWS - 1; row >= 0; row--) {
-                if (board[row][col] != null) {
-                    if (empty != row) moved[row][col] = true;
-                    empty--;
-                }
+    // Cada gema desce da sua linha até ao destino, proporcionalmente ao tempo decorrido
+    // A gema na posição from[k] cai rowsToFall[k] linhas (para k < count), como está no log
+    private void animateGravity(int[] from, int[] rowsToFall, int count, Runnable onComplete) {
+        animator.play(GRAVITY_MS, progress -> {
+            // Primeiro esvazia as posições de origem, depois desenha cada gema na linha intermédia
+            for (int k = 0; k < count; k++) {
+                drawCell(from[k] / cols, from[k] % cols, emptyIcon());
             }
-        }
-        Timer timer = new Timer(40, null);
-        timer.addActionListener(new ActionListener() {
-            int frame = 0;
-            public void actionPerformed(ActionEvent e) {
-                frame++;
-                for (int row = ROWS-1; row >= 0; row--) {
-                    for (int col = 0; col < COLS; col++) {
-                        if (moved[row][col]) {
-                            int targetRow = row;
-                            while (targetRow+1 < ROWS && board[targetRow+1][col] == null) targetRow++;
-                            if (targetRow != row) {
-                                buttons[targetRow][col].setIcon(buttons[row][col].getIcon());
-                                buttons[row][col].setIcon(null);
-                            }
-                        }
-                    }
-                }
-                updateBoard();
-                if (frame >= steps) {
-                    timer.stop();
-                    applyGravity();
-                    onComplete.run();
-                }
+            for (int k = 0; k < count; k++) {
+                int i = from[k];
+                int row = i / cols + (int) (progress * rowsToFall[k]);
+                drawCell(row, i % cols, gemIcon(i / cols, i % cols));
             }
-        });
-        timer.start();
-    }
-
-    // Aplica a gravidade: faz as gemas caírem para preencher espaços vazios
-    private void applyGravity() {
-        for (int col = 0; col < COLS; col++) {
-            int empty = ROWS - 1;
-            for (int row = ROWS - 1; row >= 0; row--) {
-                if (board[row][col] != null) {
-                    board[empty][col] = board[row][col];
-                    if (empty != row) board[row][col] = null;
-                    empty--;
-                }
-            }
-        }
-    }
-
-    // Preenche os espaços vazios no topo com novas gemas aleatórias
-    private void fillEmptySpaces() {
-        for (int col = 0; col < COLS; col++) {
-            for (int row = 0; row < ROWS; row++) {
-                if (board[row][col] == null) {
-                    GemType type = GemType.values()[random.nextInt(GemType.values().length)];
-                    board[row][col] = new Gem(type);
-                }
-            }
-        }
+        }, phase("gravity", GRAVITY_MS, onComplete));
     }
 }
@@ -0,0 +1,110 @@
+// Eventos do jogo para o Java Flight Recorder (JFR)
+// Cada classe é um tipo de evento que aparece na gravação com a sua duração e os campos indicados.
+// Quando não há nenhuma gravação ativa, criar e "commitar" um evento não custa quase nada.
+//
+// Como gravar e ver os eventos:
+//   java -XX:StartFlightRecording=filename=jogo.jfr Main
+//   jfr print --categories Bejeweled jogo.jfr   (ou abrir jogo.jfr no JDK Mission Control)
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+public final class GameEvents {
+    private GameEvents() {
+    }
+
+    @Name("bejeweled.Click")
+    @Label("Clique numa gema")
+    @Category("Bejeweled")
+    @Description("Tempo gasto a tratar um clique (handleGemClick)")
+    static final class Click extends Event {
+        @Label("Linha")
+        int row;
+        @Label("Coluna")
+        int col;
+    }
+
+    @Name("bejeweled.AnimationPhase")
+    @Label("Fase de animação")
+    @Category("Bejeweled")
+    @Description("Uma fase de animação, do início até ao fim (deslize, explosão, fade-out, queda)")
+    static final class AnimationPhase extends Event {
+        @Label("Fase")
+        String phase;
+        @Label("Duração prevista (ms)")
+        int plannedMillis;
+    }
+
+    @Name("bejeweled.Frame")
+    @Label("Frame de animação")
+    @Category("Bejeweled")
+    @Description("Trabalho feito na thread do Swing num passo do Animator")
+    static final class Frame extends Event {
+        @Label("Passos do relógio")
+        long steps;
+        @Label("Passos atrasados")
+        @Description("Passos que não tiveram um tick próprio do Timer (o Swing atrasou-se)")
+        long lateSteps;
+        @Label("Animações ativas")
+        int tweens;
+    }
+
+    @Name("bejeweled.Paint")
+    @Label("Desenho do tabuleiro")
+    @Category("Bejeweled")
+    @Description("Um paintComponent do BoardCanvas")
+    static final class Paint extends Event {
+        @Label("Posições desenhadas")
+        int cells;
+        @Label("Tabuleiro visível inteiro")
+        boolean full;
+    }
+
+    @Name("bejeweled.Cascade")
+    @Label("Passo de cascata")
+    @Category("Bejeweled")
+    @Description("Um passo de uma cascata: combinações encontradas e removidas")
+    static final class Cascade extends Event {
+        @Label("Profundidade")
+        int depth;
+        @Label("Gemas removidas")
+        int gems;
+        @Label("Pontuação")
+        int score;
+    }
+
+    @Name("bejeweled.Move")
+    @Label("Jogada")
+    @Category("Bejeweled")
+    @Description("Uma jogada completa, da troca ao fim da cascata")
+    static final class Move extends Event {
+        @Label("Válida")
+        boolean valid;
+        @Label("Passos de cascata")
+        int cascades;
+        @Label("Pontuação")
+        int score;
+    }
+
+    @Name("bejeweled.IconScale")
+    @Label("Redimensionamento de ícone")
+    @Category("Bejeweled")
+    static final class IconScale extends Event {
+        @Label("Gema")
+        String type;
+        @Label("Tamanho")
+        int size;
+    }
+
+    @Name("bejeweled.SoundLoad")
+    @Label("Carregamento de som")
+    @Category("Bejeweled")
+    static final class SoundLoad extends Event {
+        @Label("Ficheiro")
+        String file;
+        @Label("Clips abertos")
+        int clips;
+    }
+}
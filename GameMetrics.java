@@ -0,0 +1,136 @@
+// Métricas de desempenho do jogo, para o painel no ecrã e para o registo periódico
+// Os mesmos pontos que geram eventos JFR (ver GameEvents) chamam os métodos estáticos desta classe.
+// Cada "janela" aberta com open() acumula os valores desde a última vez que foi lida (drain()),
+// por isso o painel (lido a cada segundo) e o registo (lido a cada N segundos) não interferem.
+// Sem janelas abertas, registar uma medição é só percorrer uma lista vazia.
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public final class GameMetrics {
+    private static final List<GameMetrics> WINDOWS = new CopyOnWriteArrayList<>();
+
+    // Número, soma e máximo de uma medição de tempo
+    private static final class Timing {
+        long count;
+        long sumNanos;
+        long maxNanos;
+
+        void add(long nanos) {
+            count++;
+            sumNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+        }
+
+        double meanMillis() {
+            return count == 0 ? 0 : sumNanos / 1e6 / count;
+        }
+
+        double maxMillis() {
+            return maxNanos / 1e6;
+        }
+
+        void reset() {
+            count = sumNanos = maxNanos = 0;
+        }
+    }
+
+    private long start = System.nanoTime();
+    private final Timing frames = new Timing(); // Trabalho da thread do Swing em cada frame do Animator
+    private final Timing paints = new Timing();
+    private final Timing clicks = new Timing();
+    private final Timing iconScales = new Timing();
+    private final Timing soundLoads = new Timing();
+    private long lateSteps; // Passos do relógio sem tick próprio (o Timer atrasou-se)
+    private long moves;
+    private long cascades;
+    private int maxCascade; // Maior profundidade de cascata numa jogada
+    private int score;
+
+    private GameMetrics() {
+    }
+
+    // Abre uma janela de métricas (fechar com close() quando já não for usada)
+    public static GameMetrics open() {
+        GameMetrics window = new GameMetrics();
+        WINDOWS.add(window);
+        return window;
+    }
+
+    public void close() {
+        WINDOWS.remove(this);
+    }
+
+    static void frame(long nanos, long lateSteps) {
+        for (GameMetrics w : WINDOWS) {
+            synchronized (w) {
+                w.frames.add(nanos);
+                w.lateSteps += lateSteps;
+            }
+        }
+    }
+
+    static void paint(long nanos) {
+        for (GameMetrics w : WINDOWS) {
+            synchronized (w) {
+                w.paints.add(nanos);
+            }
+        }
+    }
+
+    static void click(long nanos) {
+        for (GameMetrics w : WINDOWS) {
+            synchronized (w) {
+                w.clicks.add(nanos);
+            }
+        }
+    }
+
+    static void iconScale(long nanos) {
+        for (GameMetrics w : WINDOWS) {
+            synchronized (w) {
+                w.iconScales.add(nanos);
+            }
+        }
+    }
+
+    // Chamado na thread de áudio
+    static void soundLoad(long nanos) {
+        for (GameMetrics w : WINDOWS) {
+            synchronized (w) {
+                w.soundLoads.add(nanos);
+            }
+        }
+    }
+
+    static void move(int cascadeSteps, int score) {
+        for (GameMetrics w : WINDOWS) {
+            synchronized (w) {
+                w.moves++;
+                w.cascades += cascadeSteps;
+                w.maxCascade = Math.max(w.maxCascade, cascadeSteps);
+                w.score = score;
+            }
+        }
+    }
+
+    // Devolve um resumo das medições desde a última leitura e recomeça a contar
+    public synchronized String drain() {
+        long now = System.nanoTime();
+        double seconds = Math.max(1e-9, (now - start) / 1e9);
+        String text = String.format("Frames %.0f/s, EDT %.2f ms (máx %.2f), atrasados %d | Desenho %.2f ms (máx %.2f)"
+                        + " | Clique máx %.2f ms | Jogadas %d, cascatas %d (máx %d) | Ícones %d (%.1f ms) | Sons %d (%.1f ms)"
+                        + " | Pontuação %d",
+                frames.count / seconds, frames.meanMillis(), frames.maxMillis(), lateSteps,
+                paints.meanMillis(), paints.maxMillis(), clicks.maxMillis(), moves, cascades, maxCascade,
+                iconScales.count, iconScales.sumNanos / 1e6, soundLoads.count, soundLoads.sumNanos / 1e6, score);
+        start = now;
+        frames.reset();
+        paints.reset();
+        clicks.reset();
+        iconScales.reset();
+        soundLoads.reset();
+        lateSteps = moves = cascades = 0;
+        maxCascade = 0;
+        return text;
+    }
+}
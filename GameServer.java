@@ -0,0 +1,305 @@
+// Servidor de jogo com muitas sessões independentes
+// Cada ligação tem a sua própria sessão: um BoardEngine (tabuleiro e pontuação) com a sua semente,
+// tal como o GameBoard, mas sem janela. Cada ligação é tratada por uma thread própria; em Java 21
+// ou mais recente são threads virtuais (leves, por isso podem existir milhares), senão threads normais.
+//
+// Protocolo de texto, uma linha por pedido e uma linha por resposta:
+//   NEW [linhas colunas [semente]]  -> OK <semente>             (começa um jogo novo)
+//   BOARD                           -> BOARD <linhas> <colunas> <uma letra por posição, linha a linha>
+//   SWAP r1 c1 r2 c2                -> OK <gemas removidas> <pontuação>
+//   HINT                            -> HINT r1 c1 r2 c2
+//   SCORE                           -> SCORE <pontuação>
+//   PLAYER nome                     -> OK                         (nome do jogador nos recordes desta ligação)
+//   TOP [n]                         -> TOP <pontuação>:<jogador> ... (os n melhores, do melhor para o pior)
+//   QUIT                            -> BYE
+// Os erros têm a resposta "ERR <mensagem>". As trocas seguem as regras de BoardEngine.playMove.
+//
+// Como executar:
+//   java GameServer --port 7777 [--record-dir sessoes/] [--scores recordes.bjh]
+// Com --record-dir, cada sessão é gravada num ficheiro de replay (ver Replay). Se a gravação falhar, o
+// pedido responde ERR, a ligação continua e a sessão deixa de ser gravada.
+// Com --scores, cada jogo com pelo menos uma troca é registado na tabela de recordes quando termina
+// (com um NEW, QUIT ou quando a ligação fecha; ver HighScores).
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class GameServer {
+    public static final int DEFAULT_PORT = 7777;
+    private static final int BACKLOG = 4096; // Ligações à espera de serem aceites
+    private static final int MAX_SIZE = 256; // Tamanho máximo de um tabuleiro pedido por um cliente
+    private static final int STATUS_INTERVAL_MS = 10_000; // Intervalo entre mensagens de estado
+    private static final int DEFAULT_TOP = 10; // Resultados devolvidos por TOP sem número
+    private static final String ANONYMOUS = "anónimo"; // Jogador das sessões sem PLAYER
+
+    private final int port;
+    private final Path recordDir; // Pasta para gravar as sessões, ou null
+    private final HighScores scores; // Tabela de recordes, ou null
+    private final AtomicInteger activeSessions = new AtomicInteger();
+    private final AtomicLong sessionIds = new AtomicLong();
+    private final AtomicLong totalMoves = new AtomicLong();
+
+    public GameServer(int port, Path recordDir, HighScores scores) {
+        this.port = port;
+        this.recordDir = recordDir;
+        this.scores = scores;
+    }
+
+    // Cria um executor com uma thread por tarefa: threads virtuais se o Java as tiver
+    // (procuradas por reflexão, porque o projeto compila para Java 17), senão threads normais
+    public static ExecutorService newThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    // Aceita ligações (só locais) até o processo terminar
+    public void run() throws IOException {
+        ExecutorService executor = newThreadPerTaskExecutor();
+        try (ServerSocket server = new ServerSocket(port, BACKLOG, InetAddress.getLoopbackAddress())) {
+            System.out.println("Servidor à escuta em " + server.getLocalSocketAddress());
+            startStatusThread();
+            while (true) {
+                Socket socket = server.accept();
+                executor.execute(() -> serve(socket));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // Mostra periodicamente quantas sessões estão abertas e quantas trocas foram feitas
+    private void startStatusThread() {
+        Thread status = new Thread(() -> {
+            long lastMoves = -1;
+            while (true) {
+                try {
+                    Thread.sleep(STATUS_INTERVAL_MS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long moves = totalMoves.get();
+                if (moves != lastMoves) {
+                    System.out.printf("Sessões abertas: %d; trocas: %d (%.0f/s)%n", activeSessions.get(), moves,
+                            lastMoves < 0 ? 0.0 : (moves - lastMoves) * 1000.0 / STATUS_INTERVAL_MS);
+                    lastMoves = moves;
+                }
+            }
+        }, "status");
+        status.setDaemon(true);
+        status.start();
+    }
+
+    // Uma sessão de jogo: o mesmo estado que o GameBoard guarda, mais a gravação opcional
+    private final class Session {
+        final long id = sessionIds.incrementAndGet();
+        final BoardEngine engine;
+        final long seed;
+        Replay.Recorder recorder;
+        String player = ANONYMOUS;
+        int moves = 0;
+        boolean closed = false;
+
+        Session(int rows, int cols, long seed) throws IOException {
+            this.seed = seed;
+            this.engine = new BoardEngine(rows, cols, new SplittableRandom(seed));
+            engine.initBoard(true);
+            if (recordDir != null) {
+                recorder = new Replay.Recorder(recordDir.resolve("sessao-" + id + ".bjr"), rows, cols, seed, false);
+            }
+        }
+
+        // Se a gravação falhar, a troca fica feita mas a sessão deixa de ser gravada (e o erro é lançado)
+        int swap(int r1, int c1, int r2, int c2) throws IOException {
+            int removed = engine.playMove(r1, c1, r2, c2);
+            totalMoves.incrementAndGet();
+            moves++;
+            if (recorder != null) {
+                try {
+                    recorder.record(r1, c1, r2, c2, engine.getScore());
+                } catch (IOException e) {
+                    stopRecording();
+                    throw new IOException("Troca feita, mas a gravação parou: " + e.getMessage(), e);
+                }
+            }
+            return removed;
+        }
+
+        // Fecha a gravação (se houver) e deixa de gravar
+        private void stopRecording() {
+            if (recorder == null) return;
+            try {
+                recorder.close();
+            } catch (IOException e) {
+                System.err.println("Erro ao fechar a gravação da sessão " + id + ": " + e.getMessage());
+            }
+            recorder = null;
+        }
+
+        // Termina a sessão: fecha a gravação e regista o resultado na tabela de recordes
+        // Só tem efeito da primeira vez, para o resultado nunca ser registado duas vezes
+        void close() {
+            if (closed) return;
+            closed = true;
+            if (scores != null && moves > 0) {
+                try {
+                    scores.add(engine.getScore(), seed, player);
+                } catch (IOException e) {
+                    System.err.println("Erro ao registar o resultado da sessão " + id + ": " + e.getMessage());
+                }
+            }
+            stopRecording();
+        }
+    }
+
+    // Trata uma ligação: lê pedidos até o cliente sair ou fechar a ligação
+    private void serve(Socket socket) {
+        activeSessions.incrementAndGet();
+        Session session = null;
+        String player = ANONYMOUS; // Vale para todos os jogos desta ligação
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+            socket.setTcpNoDelay(true); // Respostas curtas: não vale a pena esperar para as juntar
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] args = line.trim().split("\\s+");
+                String reply;
+                try {
+                    switch (args[0].toUpperCase()) {
+                        case "NEW":
+                            // A sessão nova é criada primeiro: se falhar, a anterior continua ativa
+                            Session next = newSession(args);
+                            if (session != null) session.close();
+                            session = next;
+                            session.player = player;
+                            reply = "OK " + session.seed;
+                            break;
+                        case "PLAYER":
+                            if (args.length != 2) throw new IllegalArgumentException("Uso: PLAYER nome");
+                            player = args[1];
+                            if (session != null) session.player = player;
+                            reply = "OK";
+                            break;
+                        case "TOP":
+                            reply = top(args);
+                            break;
+                        case "QUIT":
+                            out.println("BYE");
+                            out.flush();
+                            return;
+                        default:
+                            if (session == null) throw new IllegalStateException("Comece um jogo com NEW");
+                            reply = handle(session, args);
+                    }
+                } catch (IllegalArgumentException | IllegalStateException | IOException e) {
+                    // Os erros de um pedido (incluindo os da gravação) não terminam a ligação
+                    reply = "ERR " + e.getMessage();
+                }
+                out.println(reply);
+                out.flush();
+            }
+        } catch (IOException e) {
+            // O cliente desligou-se a meio: a sessão termina
+        } finally {
+            if (session != null) session.close();
+            activeSessions.decrementAndGet();
+        }
+    }
+
+    // Cria uma sessão com o tamanho e a semente pedidos (ou o tamanho por omissão e uma semente aleatória)
+    private Session newSession(String[] args) throws IOException {
+        int rows = args.length >= 3 ? parse(args[1]) : GameBoard.DEFAULT_ROWS;
+        int cols = args.length >= 3 ? parse(args[2]) : GameBoard.DEFAULT_COLS;
+        long seed = args.length >= 4 ? Long.parseLong(args[3]) : ThreadLocalRandom.current().nextLong();
+        if (rows > MAX_SIZE || cols > MAX_SIZE) throw new IllegalArgumentException("Tabuleiro demasiado grande");
+        return new Session(rows, cols, seed);
+    }
+
+    // Responde a um pedido sobre o jogo em curso
+    private String handle(Session session, String[] args) throws IOException {
+        BoardEngine engine = session.engine;
+        switch (args[0].toUpperCase()) {
+            case "BOARD": {
+                StringBuilder sb = new StringBuilder("BOARD ").append(engine.getRows()).append(' ')
+                        .append(engine.getCols()).append(' ');
+                for (int row = 0; row < engine.getRows(); row++) {
+                    for (int col = 0; col < engine.getCols(); col++) {
+                        sb.append((char) ('A' + engine.getCode(row, col)));
+                    }
+                }
+                return sb.toString();
+            }
+            case "SWAP": {
+                if (args.length != 5) throw new IllegalArgumentException("Uso: SWAP r1 c1 r2 c2");
+                int r1 = parse(args[1]), c1 = parse(args[2]), r2 = parse(args[3]), c2 = parse(args[4]);
+                if (r1 >= engine.getRows() || r2 >= engine.getRows() || c1 >= engine.getCols() || c2 >= engine.getCols()) {
+                    throw new IllegalArgumentException("Posição fora do tabuleiro");
+                }
+                int removed = session.swap(r1, c1, r2, c2); // Lança IllegalArgumentException se não forem adjacentes
+                return "OK " + removed + " " + engine.getScore();
+            }
+            case "HINT": {
+                int move = engine.findHint(); // Existe sempre: playMove baralha os tabuleiros sem jogadas
+                return "HINT " + engine.moveRow(move) + " " + engine.moveCol(move) + " "
+                        + engine.moveTargetRow(move) + " " + engine.moveTargetCol(move);
+            }
+            case "SCORE":
+                return "SCORE " + engine.getScore();
+            default:
+                throw new IllegalArgumentException("Pedido desconhecido: " + args[0]);
+        }
+    }
+
+    // Os melhores resultados da tabela de recordes (não precisa de um jogo em curso)
+    private String top(String[] args) {
+        if (scores == null) throw new IllegalStateException("O servidor não tem tabela de recordes (--scores)");
+        StringBuilder sb = new StringBuilder("TOP");
+        for (HighScores.Entry e : scores.top(args.length >= 2 ? parse(args[1]) : DEFAULT_TOP)) {
+            sb.append(' ').append(e.getScore()).append(':').append(e.getPlayer());
+        }
+        return sb.toString();
+    }
+
+    // Lê um número não negativo de um pedido
+    private static int parse(String value) {
+        int n = Integer.parseInt(value); // NumberFormatException é uma IllegalArgumentException
+        if (n < 0) throw new IllegalArgumentException("Número negativo: " + value);
+        return n;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = DEFAULT_PORT;
+        Path recordDir = null;
+        Path scoresFile = null;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--port": port = Integer.parseInt(value); break;
+                case "--record-dir": recordDir = Paths.get(value); break;
+                case "--scores": scoresFile = Paths.get(value); break;
+                default:
+                    System.err.println("Opção desconhecida: " + args[i]);
+                    System.exit(1);
+            }
+        }
+        HighScores scores = scoresFile == null ? null : HighScores.open(scoresFile);
+        new GameServer(port, recordDir, scores).run();
+    }
+}
@@ -0,0 +1,45 @@
+// Atlas de texturas das gemas: todas as gemas de um tamanho numa única imagem
+// As sete imagens são redimensionadas uma vez e colocadas lado a lado; cada gema é desenhada
+// copiando o seu retângulo do atlas. Uma só imagem (compatível com o ecrã) é mais rápida de
+// copiar do que sete imagens separadas e ocupa menos memória.
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+public final class GemAtlas {
+    private final BufferedImage sheet; // Imagem com as gemas lado a lado, pela ordem do enum
+    private final int size; // Tamanho (em píxeis) de cada gema
+
+    // Cria o atlas com as imagens originais (uma por tipo, pela ordem do enum; null = imagem em falta)
+    public GemAtlas(Image[] images, int size) {
+        this.size = size;
+        this.sheet = createImage(size * images.length, size);
+        Graphics2D g2 = sheet.createGraphics();
+        g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+        g2.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        for (int i = 0; i < images.length; i++) {
+            if (images[i] != null) {
+                g2.drawImage(images[i], i * size, 0, size, size, null);
+            } else {
+                g2.setColor(Color.GRAY); // Imagem em falta: quadrado cinzento, para não ficar um buraco
+                g2.fillRect(i * size, 0, size, size);
+            }
+        }
+        g2.dispose();
+    }
+
+    // Imagem transparente no formato do ecrã (se houver ecrã), para ser copiada sem conversões
+    private static BufferedImage createImage(int width, int height) {
+        if (!GraphicsEnvironment.isHeadless()) {
+            GraphicsConfiguration gc = GraphicsEnvironment.getLocalGraphicsEnvironment()
+                    .getDefaultScreenDevice().getDefaultConfiguration();
+            return gc.createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+        }
+        return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    }
+
+    // Desenha a gema com o canto superior esquerdo em (x, y), copiando o seu retângulo do atlas
+    public void draw(Graphics g, GemType type, int x, int y) {
+        int sx = type.ordinal() * size;
+        g.drawImage(sheet, x, y, x + size, y + size, sx, 0, sx + size, size, null);
+    }
+}
@@ -0,0 +1,102 @@
+// Cache partilhada dos ícones das gemas (padrão "flyweight")
+// As imagens em gemsPNG/ são carregadas pelo Assets (em segundo plano, logo no arranque) e,
+// para cada tamanho pedido, redimensionadas uma única vez para um atlas (GemAtlas).
+// Todas as posições do tabuleiro com o mesmo tipo partilham o mesmo ícone, que desenha o seu
+// retângulo do atlas; enquanto o atlas não está pronto, o ícone mostra um círculo cinzento claro.
+import javax.swing.*;
+import java.awt.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+public final class GemIcons {
+    private static final Color PLACEHOLDER = new Color(0xDD, 0xDD, 0xDD); // Cor da gema enquanto o atlas não está pronto
+
+    // Atlas por tamanho (em píxeis), preparados em segundo plano
+    private static final Map<Integer, CompletableFuture<GemAtlas>> ATLASES = new HashMap<>();
+    // Ícones por tamanho e depois por tipo
+    private static final Map<Integer, Icon[]> ICONS = new HashMap<>();
+
+    private GemIcons() {
+    }
+
+    // Devolve o ícone do tipo indicado no tamanho size x size (desenhado a partir do atlas)
+    // Não espera pelo atlas: se ainda não estiver pronto, o ícone desenha um círculo provisório
+    public static synchronized Icon get(GemType type, int size) {
+        Icon[] icons = ICONS.get(size);
+        if (icons == null) {
+            icons = new Icon[GemType.values().length];
+            ICONS.put(size, icons);
+        }
+        Icon icon = icons[type.ordinal()];
+        if (icon == null) {
+            icon = new AtlasIcon(type, size, atlas(size));
+            icons[type.ordinal()] = icon;
+        }
+        return icon;
+    }
+
+    // Atlas das gemas no tamanho indicado; é preparado (uma única vez) quando as imagens estiverem carregadas
+    public static synchronized CompletableFuture<GemAtlas> atlas(int size) {
+        CompletableFuture<GemAtlas> atlas = ATLASES.get(size);
+        if (atlas == null) {
+            GemType[] types = GemType.values();
+            CompletableFuture<?>[] images = new CompletableFuture<?>[types.length];
+            for (int i = 0; i < types.length; i++) {
+                images[i] = Assets.gemImage(types[i]);
+            }
+            atlas = CompletableFuture.allOf(images).thenApplyAsync(done -> {
+                // O redimensionamento é medido (evento JFR e GameMetrics), mas já não corre na thread do Swing
+                GameEvents.IconScale event = new GameEvents.IconScale();
+                event.begin();
+                long start = System.nanoTime();
+                Image[] originals = new Image[types.length];
+                for (int i = 0; i < types.length; i++) {
+                    originals[i] = (Image) images[i].join();
+                }
+                GemAtlas result = new GemAtlas(originals, size);
+                event.type = "atlas";
+                event.size = size;
+                event.commit();
+                GameMetrics.iconScale(System.nanoTime() - start);
+                return result;
+            }, Assets.loader());
+            ATLASES.put(size, atlas);
+        }
+        return atlas;
+    }
+
+    // Ícone que desenha uma gema copiando o seu retângulo do atlas
+    private static final class AtlasIcon implements Icon {
+        private final GemType type;
+        private final int size;
+        private final CompletableFuture<GemAtlas> atlas;
+
+        AtlasIcon(GemType type, int size, CompletableFuture<GemAtlas> atlas) {
+            this.type = type;
+            this.size = size;
+            this.atlas = atlas;
+        }
+
+        @Override
+        public void paintIcon(Component c, Graphics g, int x, int y) {
+            GemAtlas ready = atlas.getNow(null);
+            if (ready != null) {
+                ready.draw(g, type, x, y);
+            } else {
+                g.setColor(PLACEHOLDER);
+                g.fillOval(x + 4, y + 4, getIconWidth() - 8, getIconHeight() - 8);
+            }
+        }
+
+        @Override
+        public int getIconWidth() {
+            return size;
+        }
+
+        @Override
+        public int getIconHeight() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,407 @@
+// Tabela de recordes guardada num ficheiro local
+// Cada jogo terminado é acrescentado ao fim do ficheiro (nunca se reescreve o que já lá está), por
+// isso registar um jogo é uma única escrita pequena. Ao abrir, o ficheiro é mapeado em memória e
+// percorrido uma vez para reconstruir os índices: os melhores resultados de todos (top) e os melhores
+// de cada jogador. As consultas usam só esses índices, por isso não ficam mais lentas com o ficheiro.
+// Quando o ficheiro já tem muitos registos que não entram em nenhum índice, é compactado: reescrito
+// só com os registos que os índices usam (o resultado das consultas não muda).
+//
+// Formato do ficheiro (binário, big-endian):
+//   cabeçalho de 8 bytes: "BJHS", versão (1 byte), marca de substituído (1 byte, ver abaixo) e 2 bytes reservados
+//   seguido de registos de 56 bytes: pontuação (4 bytes), tamanho do nome (1 byte), 3 bytes reservados,
+//   semente (8 bytes), data em milissegundos desde 1970 (8 bytes) e nome do jogador (32 bytes, UTF-8).
+// Um registo incompleto no fim (escrita interrompida) é descartado ao abrir.
+//
+// O mesmo ficheiro pode ser usado por vários programas ao mesmo tempo (por exemplo o Main e o GameServer):
+// cada escrita e cada compactação é feita com o ficheiro bloqueado (FileLock), e antes de escrever são
+// lidos os jogos que os outros acrescentaram entretanto. A compactação cria outro ficheiro com o mesmo
+// nome e, antes de largar o bloqueio do antigo, marca-o como substituído no cabeçalho: quem o bloquear
+// a seguir vê a marca e volta a abrir o ficheiro pelo nome (isto não depende do sistema operativo
+// saber identificar ficheiros, o que por exemplo o Windows não faz no Java). As consultas mostram só os
+// jogos lidos até à última escrita deste programa. Dentro de um programa deve haver um único HighScores
+// por ficheiro (os bloqueios são por programa, e um segundo bloqueio lança OverlappingFileLockException).
+//
+// Como executar:
+//   java HighScores top recordes.bjh [n]              (os n melhores resultados)
+//   java HighScores player recordes.bjh <nome> [n]    (os n melhores resultados de um jogador)
+//   java HighScores compact recordes.bjh
+// Verificação automática: test/HighScoresCheck.java; para encher uma tabela e medir: test/HighScoresFill.java
+// Para guardar os jogos: java -Dbejeweled.scores=recordes.bjh Main  ou  java GameServer --scores recordes.bjh
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+public final class HighScores implements Closeable {
+    public static final int DEFAULT_TOP = 100; // Resultados guardados no índice geral
+    public static final int DEFAULT_PLAYER_TOP = 10; // Resultados guardados por jogador
+    private static final int MAGIC = 0x424A4853; // "BJHS"
+    private static final byte VERSION = 1;
+    static final int HEADER_BYTES = 8;
+    private static final int REPLACED_OFFSET = 5; // Byte do cabeçalho que a compactação põe a 1 no ficheiro antigo
+    static final int RECORD_BYTES = 56;
+    private static final int NAME_OFFSET = 24; // Posição do nome dentro do registo
+    private static final int MAX_NAME_BYTES = RECORD_BYTES - NAME_OFFSET;
+    // Registos mapeados de cada vez ao abrir (um mapeamento não pode passar de 2 GB)
+    private static final int RECORDS_PER_MAP = Integer.MAX_VALUE / RECORD_BYTES;
+    private static final long COMPACT_MIN_RECORDS = 100_000; // Ficheiros mais pequenos nunca são compactados
+    private static final int COMPACT_FACTOR = 4; // Compacta quando há 4 registos por cada registo usado pelos índices
+
+    // Ordem da tabela: maior pontuação primeiro; em caso de empate, quem a conseguiu primeiro
+    private static final Comparator<Entry> RANKING =
+            Comparator.comparingInt((Entry e) -> -e.score).thenComparingLong(e -> e.sequence);
+
+    // Um jogo registado
+    public static final class Entry {
+        final int score;
+        final long seed;
+        final long timestamp;
+        final String player;
+        final long sequence; // Número do registo no ficheiro (desempata a ordem)
+
+        Entry(int score, long seed, long timestamp, String player, long sequence) {
+            this.score = score;
+            this.seed = seed;
+            this.timestamp = timestamp;
+            this.player = player;
+            this.sequence = sequence;
+        }
+
+        public int getScore() {
+            return score;
+        }
+
+        public long getSeed() {
+            return seed;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public String getPlayer() {
+            return player;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%10d  %-20s semente %d  %s", score, player, seed, Instant.ofEpochMilli(timestamp));
+        }
+    }
+
+    // Os k melhores resultados, numa fila com o pior à frente (entrar custa O(log k))
+    private static final class TopK {
+        final int k;
+        final PriorityQueue<Entry> queue;
+        List<Entry> sorted; // Cópia ordenada para as consultas, refeita só depois de mudar
+
+        TopK(int k) {
+            this.k = k;
+            this.queue = new PriorityQueue<>(k, RANKING.reversed());
+        }
+
+        // Indica se um jogo com esta pontuação (registado agora, depois de todos os outros) entraria
+        boolean accepts(int score) {
+            return queue.size() < k || score > queue.peek().score;
+        }
+
+        // Junta um jogo (só se accepts o aceitar); devolve true se a fila cresceu
+        boolean add(Entry e) {
+            boolean grew = queue.size() < k;
+            if (!grew) queue.poll();
+            queue.add(e);
+            sorted = null;
+            return grew;
+        }
+
+        List<Entry> top(int n) {
+            if (sorted == null) {
+                List<Entry> list = new ArrayList<>(queue);
+                list.sort(RANKING);
+                sorted = Collections.unmodifiableList(list);
+            }
+            return sorted.subList(0, Math.min(n, sorted.size()));
+        }
+    }
+
+    private final Path file;
+    private final int topSize;
+    private final int playerTopSize;
+    private FileChannel channel;
+    private TopK top;
+    private final Map<String, TopK> players = new HashMap<>();
+    private long records; // Registos no ficheiro
+    private long indexed; // Registos usados pelos índices (no máximo; o mesmo jogo pode estar nos dois)
+    private long compactAt = COMPACT_MIN_RECORDS; // Abaixo deste número de registos o add não compacta
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES); // Reutilizado em cada escrita
+
+    private HighScores(Path file, int topSize, int playerTopSize) {
+        if (topSize < 1 || playerTopSize < 1) throw new IllegalArgumentException("Os índices precisam de pelo menos 1 lugar");
+        this.file = file;
+        this.topSize = topSize;
+        this.playerTopSize = playerTopSize;
+    }
+
+    // Abre (ou cria) a tabela no ficheiro indicado e reconstrói os índices
+    public static HighScores open(Path file) throws IOException {
+        return open(file, DEFAULT_TOP, DEFAULT_PLAYER_TOP);
+    }
+
+    public static HighScores open(Path file, int topSize, int playerTopSize) throws IOException {
+        HighScores scores = new HighScores(file, topSize, playerTopSize);
+        scores.load();
+        return scores;
+    }
+
+    // Abre o ficheiro e percorre todos os registos (mapeados em memória) para preencher os índices
+    // Só se cria um Entry para os jogos que entram num índice
+    private void load() throws IOException {
+        while (true) {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                FileLock lock = channel.lock();
+                if (replaced()) {
+                    // Outro programa compactou o ficheiro entre abrir e bloquear: abre o novo
+                    channel.close();
+                    continue;
+                }
+                top = new TopK(topSize);
+                players.clear();
+                records = indexed = 0;
+                readHeader();
+                long size = channel.size();
+                readNew(size);
+                if (HEADER_BYTES + records * RECORD_BYTES != size) {
+                    channel.truncate(HEADER_BYTES + records * RECORD_BYTES); // Registo incompleto no fim
+                }
+                lock.release();
+                return;
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+        }
+    }
+
+    // Escreve o cabeçalho num ficheiro novo, ou confirma o de um ficheiro que já existe
+    private void readHeader() throws IOException {
+        long size = channel.size();
+        if (size == 0) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).put(VERSION);
+            header.position(HEADER_BYTES).flip();
+            while (header.hasRemaining()) channel.write(header);
+            return;
+        }
+        ByteBuffer header = size < HEADER_BYTES ? null : channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+        if (header == null || header.getInt() != MAGIC) {
+            throw new IOException("Não é uma tabela de recordes: " + file);
+        }
+        if (header.get() != VERSION) {
+            throw new IOException("Versão da tabela de recordes desconhecida: " + file);
+        }
+    }
+
+    // Junta aos índices os registos completos que estão no ficheiro depois dos que já foram lidos
+    private void readNew(long size) throws IOException {
+        long total = (size - HEADER_BYTES) / RECORD_BYTES;
+        byte[] name = new byte[MAX_NAME_BYTES];
+        while (records < total) {
+            int count = (int) Math.min(RECORDS_PER_MAP, total - records);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY,
+                    HEADER_BYTES + records * RECORD_BYTES, (long) count * RECORD_BYTES);
+            for (int i = 0; i < count; i++) {
+                int base = i * RECORD_BYTES;
+                int score = buffer.getInt(base);
+                int length = Math.min(buffer.get(base + 4) & 0xFF, MAX_NAME_BYTES);
+                buffer.get(base + NAME_OFFSET, name, 0, length);
+                String player = new String(name, 0, length, StandardCharsets.UTF_8);
+                index(score, buffer.getLong(base + 8), buffer.getLong(base + 16), player, records++);
+            }
+        }
+    }
+
+    // Indica se o ficheiro aberto já foi substituído por uma compactação (só é fiável com o bloqueio)
+    private boolean replaced() throws IOException {
+        ByteBuffer mark = ByteBuffer.allocate(1);
+        return channel.read(mark, REPLACED_OFFSET) == 1 && mark.get(0) != 0;
+    }
+
+    // Bloqueia o ficheiro para escrever, depois de o voltar a abrir se outro programa o compactou,
+    // e lê os jogos que os outros programas acrescentaram desde a última vez
+    private FileLock lockForWrite() throws IOException {
+        while (true) {
+            FileLock lock = channel.lock();
+            if (!replaced()) {
+                readNew(channel.size());
+                return lock;
+            }
+            channel.close(); // Também liberta o bloqueio
+            load();
+        }
+    }
+
+    // Junta um jogo aos índices em que entrar
+    private void index(int score, long seed, long timestamp, String player, long sequence) {
+        TopK mine = players.get(player);
+        boolean inTop = top.accepts(score);
+        boolean inMine = mine == null || mine.accepts(score);
+        if (!inTop && !inMine) return;
+        Entry e = new Entry(score, seed, timestamp, player, sequence);
+        if (inTop && top.add(e)) indexed++;
+        if (inMine) {
+            if (mine == null) {
+                mine = new TopK(playerTopSize);
+                players.put(player, mine);
+            }
+            if (mine.add(e)) indexed++;
+        }
+    }
+
+    // Regista um jogo terminado (acrescentado ao fim do ficheiro e aos índices)
+    public synchronized void add(int score, long seed, String player) throws IOException {
+        byte[] name = nameBytes(player);
+        long timestamp = System.currentTimeMillis();
+        Arrays.fill(record.array(), (byte) 0);
+        record.clear();
+        record.putInt(score).put((byte) name.length).position(8).putLong(seed).putLong(timestamp).put(name);
+        record.position(RECORD_BYTES).flip();
+        FileLock lock = lockForWrite();
+        try {
+            // Escreve logo a seguir ao último registo completo (por cima de um registo incompleto, se houver)
+            long position = HEADER_BYTES + records * RECORD_BYTES;
+            while (record.hasRemaining()) position += channel.write(record, position);
+        } finally {
+            lock.release();
+        }
+        index(score, seed, timestamp, new String(name, StandardCharsets.UTF_8), records++);
+        if (records >= compactAt && records >= COMPACT_FACTOR * indexed) {
+            // O jogo já está guardado: se a compactação falhar (disco cheio, pasta sem permissão de escrita...)
+            // o add não falha, e só se volta a tentar quando o ficheiro tiver o dobro dos registos
+            try {
+                compact();
+                compactAt = COMPACT_MIN_RECORDS;
+            } catch (IOException e) {
+                System.err.println("Erro ao compactar a tabela de recordes " + file + ": " + e.getMessage());
+                compactAt = records * 2;
+            }
+        }
+    }
+
+    // Nome em UTF-8, cortado a 32 bytes sem partir nenhum carácter a meio
+    private static byte[] nameBytes(String player) {
+        byte[] bytes = player.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, MAX_NAME_BYTES);
+        while (length < bytes.length && length > 0 && (bytes[length] & 0xC0) == 0x80) length--;
+        return Arrays.copyOf(bytes, length);
+    }
+
+    // Os n melhores resultados (n até ao tamanho do índice), do melhor para o pior
+    public synchronized List<Entry> top(int n) {
+        return top.top(n);
+    }
+
+    // Os n melhores resultados de um jogador (vazio se nunca jogou)
+    public synchronized List<Entry> top(String player, int n) {
+        TopK mine = players.get(new String(nameBytes(player), StandardCharsets.UTF_8));
+        return mine == null ? List.of() : mine.top(n);
+    }
+
+    public synchronized int playerCount() {
+        return players.size();
+    }
+
+    public synchronized long size() {
+        return records;
+    }
+
+    // Reescreve o ficheiro só com os jogos que estão nos índices (pela ordem original) e volta a abri-lo
+    // O novo ficheiro é escrito à parte e só depois substitui o antigo, por isso nunca fica a meio
+    // O ficheiro antigo fica bloqueado até ser substituído, por isso nenhum jogo escrito por outro programa se perde
+    public synchronized void compact() throws IOException {
+        FileLock lock = lockForWrite();
+        try {
+            Set<Entry> kept = Collections.newSetFromMap(new IdentityHashMap<>());
+            kept.addAll(top.queue);
+            for (TopK mine : players.values()) {
+                kept.addAll(mine.queue);
+            }
+            List<Entry> entries = new ArrayList<>(kept);
+            entries.sort(Comparator.comparingLong(e -> e.sequence));
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + entries.size() * RECORD_BYTES);
+            buffer.putInt(MAGIC).put(VERSION).position(HEADER_BYTES);
+            for (Entry e : entries) {
+                byte[] name = e.player.getBytes(StandardCharsets.UTF_8);
+                int base = buffer.position();
+                buffer.putInt(e.score).put((byte) name.length).position(base + 8).putLong(e.seed).putLong(e.timestamp)
+                        .put(name).position(base + RECORD_BYTES);
+            }
+            buffer.flip();
+            AtomicFile.write(file, buffer); // Mantém as permissões do ficheiro (que pode ser partilhado)
+            channel.write(ByteBuffer.wrap(new byte[] {1}), REPLACED_OFFSET); // Os outros programas passam a abrir o novo
+        } catch (IOException e) {
+            lock.release();
+            throw e;
+        }
+        channel.close(); // Liberta o bloqueio: quem estava à espera vê que o ficheiro mudou e volta a abri-lo
+        load();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.force(false);
+        channel.close();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Uso: java HighScores top|player|compact <ficheiro> ...");
+            System.exit(1);
+        }
+        Path file = Paths.get(args[1]);
+        long start = System.nanoTime();
+        try (HighScores scores = open(file)) {
+            System.out.printf("%d jogos de %d jogadores lidos em %.1f ms%n", scores.size(), scores.playerCount(),
+                    (System.nanoTime() - start) / 1e6);
+            switch (args[0]) {
+                case "top":
+                    print(scores.top(args.length > 2 ? Integer.parseInt(args[2]) : 10));
+                    break;
+                case "player":
+                    print(scores.top(args[2], args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_PLAYER_TOP));
+                    break;
+                case "compact":
+                    long before = scores.size();
+                    scores.compact();
+                    System.out.println("Compactado de " + before + " para " + scores.size() + " jogos");
+                    break;
+                default:
+                    System.err.println("Comando desconhecido: " + args[0]);
+                    System.exit(1);
+            }
+        }
+    }
+
+    private static void print(List<Entry> entries) {
+        int position = 1;
+        for (Entry e : entries) {
+            System.out.printf("%3d. %s%n", position++, e);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+// Gerador de carga para o GameServer
+// Abre muitas ligações ao mesmo tempo; cada uma é um jogador simulado que começa um jogo e faz
+// trocas (quase sempre a dica do servidor, às vezes uma troca ao acaso, que pode ser inválida).
+// No fim mostra quantos pedidos por segundo o servidor respondeu e o tempo de resposta.
+//
+// Como executar (com o servidor já a correr):
+//   java LoadClient --players 2000 --moves 50 --port 7777
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class LoadClient {
+    private static final int RANDOM_SWAP_PERCENT = 10; // Percentagem de trocas ao acaso (em vez da dica)
+
+    private final int port;
+    private final int movesPerPlayer;
+    private final long seed;
+    private final long[][] latencies; // Tempo de resposta (ns) de cada pedido, por jogador
+    private final AtomicInteger failures = new AtomicInteger();
+
+    public LoadClient(int port, int players, int movesPerPlayer, long seed) {
+        this.port = port;
+        this.movesPerPlayer = movesPerPlayer;
+        this.seed = seed;
+        this.latencies = new long[players][];
+    }
+
+    // Joga com todos os jogadores ao mesmo tempo (uma thread por jogador) e espera que terminem
+    public void run() throws InterruptedException {
+        ExecutorService executor = GameServer.newThreadPerTaskExecutor();
+        for (int p = 0; p < latencies.length; p++) {
+            int player = p;
+            executor.execute(() -> {
+                try {
+                    play(player);
+                } catch (IOException | RuntimeException e) {
+                    failures.incrementAndGet();
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.DAYS);
+    }
+
+    // Um jogador: NEW, depois HINT + SWAP (ou só um SWAP ao acaso) até fazer as trocas todas
+    private void play(int player) throws IOException {
+        SplittableRandom random = new SplittableRandom(Simulator.mix64(seed + player));
+        long[] times = new long[movesPerPlayer * 2 + 2];
+        int count = 0;
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+            socket.setTcpNoDelay(true);
+            long start = System.nanoTime();
+            String[] reply = request(in, out, "NEW " + GameBoard.DEFAULT_ROWS + " " + GameBoard.DEFAULT_COLS + " " + random.nextLong());
+            times[count++] = System.nanoTime() - start;
+            for (int move = 0; move < movesPerPlayer; move++) {
+                String swap;
+                if (random.nextInt(100) < RANDOM_SWAP_PERCENT) {
+                    int row = random.nextInt(GameBoard.DEFAULT_ROWS - 1), col = random.nextInt(GameBoard.DEFAULT_COLS - 1);
+                    swap = random.nextBoolean() ? row + " " + col + " " + row + " " + (col + 1)
+                            : row + " " + col + " " + (row + 1) + " " + col;
+                } else {
+                    start = System.nanoTime();
+                    reply = request(in, out, "HINT");
+                    times[count++] = System.nanoTime() - start;
+                    swap = reply[1] + " " + reply[2] + " " + reply[3] + " " + reply[4];
+                }
+                start = System.nanoTime();
+                request(in, out, "SWAP " + swap);
+                times[count++] = System.nanoTime() - start;
+            }
+            request(in, out, "QUIT");
+        }
+        latencies[player] = Arrays.copyOf(times, count);
+    }
+
+    // Envia um pedido e devolve a resposta partida em palavras (falha se for um erro)
+    private static String[] request(BufferedReader in, PrintWriter out, String line) throws IOException {
+        out.println(line);
+        out.flush();
+        String reply = in.readLine();
+        if (reply == null) throw new IOException("O servidor fechou a ligação");
+        if (reply.startsWith("ERR")) throw new IOException(reply);
+        return reply.split(" ");
+    }
+
+    // Junta os tempos de todos os jogadores e mostra o ritmo e os percentis
+    private void report(double seconds) {
+        long[] all = Arrays.stream(latencies).filter(t -> t != null).flatMapToLong(Arrays::stream).sorted().toArray();
+        System.out.printf("Jogadores: %d (%d falharam); pedidos: %d em %.2f s (%.0f pedidos/s)%n",
+                latencies.length, failures.get(), all.length, seconds, all.length / seconds);
+        if (all.length == 0) return;
+        System.out.printf("Tempo de resposta: mediana %.2f ms, p99 %.2f ms, máximo %.2f ms%n",
+                all[all.length / 2] / 1e6, all[(int) (all.length * 0.99)] / 1e6, all[all.length - 1] / 1e6);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int port = GameServer.DEFAULT_PORT, players = 1000, moves = 50;
+        long seed = 42;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--port": port = Integer.parseInt(value); break;
+                case "--players": players = Integer.parseInt(value); break;
+                case "--moves": moves = Integer.parseInt(value); break;
+                case "--seed": seed = Long.parseLong(value); break;
+                default:
+                    System.err.println("Opção desconhecida: " + args[i]);
+                    System.exit(1);
+            }
+        }
+        LoadClient client = new LoadClient(port, players, moves, seed);
+        long start = System.nanoTime();
+        client.run();
+        client.report((System.nanoTime() - start) / 1e9);
+    }
+}
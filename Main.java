@@ -3,20 +3,36 @@
 // Aqui criamos a janela principal do jogo e adicionamos o painel do tabuleiro.
 // Toda a interface gráfica é criada dentro do método invokeLater para garantir
 // que corre na thread correta do Swing (boa prática em Java).
+// Opcionalmente, o tamanho do tabuleiro pode ser indicado na linha de comandos:
+//   java Main [linhas colunas [tamanho da gema em píxeis]]
 import javax.swing.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 
 public class Main {
     public static void main(String[] args) {
+        int rows = args.length >= 2 ? Integer.parseInt(args[0]) : GameBoard.DEFAULT_ROWS;
+        int cols = args.length >= 2 ? Integer.parseInt(args[1]) : GameBoard.DEFAULT_COLS;
+        int gemSize = args.length >= 3 ? Integer.parseInt(args[2]) : GameBoard.DEFAULT_GEM_SIZE;
         // O método invokeLater garante que o código da interface gráfica
         // é executado na thread correta do Swing.
+        // Começa já a carregar as imagens e os sons, em paralelo com a criação da janela
+        Assets.startLoading();
         SwingUtilities.invokeLater(() -> {
             // Cria a janela principal do jogo
             JFrame frame = new JFrame("Bejeweled - Projeto Didático");
             frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE); // Fecha o programa ao fechar a janela
+            // Antes de sair, fecha a janela: o painel do jogo liberta os sons e guarda o que tiver de guardar
+            frame.addWindowListener(new WindowAdapter() {
+                @Override
+                public void windowClosing(WindowEvent e) {
+                    frame.dispose();
+                }
+            });
             frame.setResizable(false); // Impede o redimensionamento da janela
 
             // Adiciona o painel do jogo (tabuleiro) à janela
-            frame.add(new GameBoard());
+            frame.add(new GameBoard(rows, cols, gemSize));
             frame.pack(); // Ajusta o tamanho da janela automaticamente
             frame.setLocationRelativeTo(null); // Centraliza a janela no ecrã
             frame.setVisible(true); // Torna a janela visível
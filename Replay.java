@@ -0,0 +1,249 @@
+// Gravação e reprodução de sessões de jogo
+// Como todas as gemas aleatórias vêm do gerador do BoardEngine, basta guardar a semente e as
+// trocas feitas pelo jogador para voltar a obter exatamente o mesmo jogo (ver BoardEngine.playMove).
+//
+// Formato do ficheiro (binário, big-endian):
+//   cabeçalho de 26 bytes: "BJRP", versão (1 byte), opções (1 byte), linhas e colunas (2 bytes cada),
+//   semente (8 bytes), número de trocas (4 bytes) e pontuação depois da última troca (4 bytes)
+//   seguido das trocas, cada uma com o número da jogada (índice da primeira posição * 2 + direção,
+//   como em BoardEngine.findValidMoves) em formato de tamanho variável: 7 bits por byte, e o bit
+//   mais alto indica que há mais bytes. Num tabuleiro de 8x8 cada troca ocupa 1 byte.
+// O número de trocas e a pontuação são atualizados a cada troca, por isso o ficheiro está sempre completo.
+//
+// Como executar:
+//   java Replay verify sessoes/       (volta a jogar todos os ficheiros .bjr, sem janela, e compara as pontuações)
+//   java Replay show sessao.bjr       (mostra a sessão no tabuleiro com animações)
+// Para gravar uma sessão: java -Dbejeweled.record=sessao.bjr Main
+import javax.swing.*;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+public final class Replay {
+    private static final int MAGIC = 0x424A5250; // "BJRP"
+    private static final byte VERSION = 1;
+    private static final int FLAG_SAFE_REFILL = 1; // Opção: BoardEngine.setSafeRefill(true)
+    private static final int HEADER_BYTES = 26;
+    private static final int MOVES_OFFSET = 18; // Posição do número de trocas no cabeçalho
+    private static final String EXTENSION = ".bjr";
+    private static final int SHOW_STEP_MS = 100; // Intervalo entre verificações no modo com janela
+
+    private final int rows;
+    private final int cols;
+    private final long seed;
+    private final boolean safeRefill;
+    private final int moveCount;
+    private final int score; // Pontuação gravada (a que o jogo tinha depois da última troca)
+    private final ByteBuffer moves; // Trocas codificadas (a seguir ao cabeçalho)
+
+    private Replay(ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC) throw new IOException("Não é um ficheiro de replay");
+        if (buffer.get() != VERSION) throw new IOException("Versão de replay desconhecida");
+        safeRefill = (buffer.get() & FLAG_SAFE_REFILL) != 0;
+        rows = buffer.getShort();
+        cols = buffer.getShort();
+        seed = buffer.getLong();
+        moveCount = buffer.getInt();
+        score = buffer.getInt();
+        moves = buffer.slice();
+    }
+
+    // Abre um ficheiro de replay, mapeado em memória (o sistema operativo lê-o à medida que é percorrido)
+    public static Replay open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new Replay(buffer); // O mapeamento continua válido depois de fechar o canal
+        }
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    // Cria o motor no estado inicial da sessão (mesma semente, mesmo gerador e mesmas opções)
+    public BoardEngine newEngine() {
+        BoardEngine engine = new BoardEngine(rows, cols, new SplittableRandom(seed));
+        engine.setSafeRefill(safeRefill);
+        engine.initBoard(true);
+        return engine;
+    }
+
+    // Descodifica as trocas (no formato de BoardEngine.findValidMoves)
+    public int[] moves() throws IOException {
+        ByteBuffer in = moves.duplicate();
+        int[] out = new int[moveCount];
+        for (int k = 0; k < moveCount; k++) {
+            int move = 0;
+            for (int shift = 0; ; shift += 7) {
+                if (!in.hasRemaining() || shift > 28) throw new IOException("Replay truncado ou inválido");
+                byte b = in.get();
+                move |= (b & 0x7F) << shift;
+                if (b >= 0) break;
+            }
+            // A segunda posição (à direita ou abaixo) também tem de estar dentro do tabuleiro
+            int row = (move >> 1) / cols, col = (move >> 1) % cols;
+            boolean down = (move & 1) == BoardEngine.MOVE_DOWN;
+            if (move < 0 || row >= rows || (down ? row + 1 >= rows : col + 1 >= cols)) {
+                throw new IOException("Troca fora do tabuleiro no replay");
+            }
+            out[k] = move;
+        }
+        return out;
+    }
+
+    // Volta a jogar a sessão inteira, sem janela, e devolve a pontuação final
+    public int play() throws IOException {
+        BoardEngine engine = newEngine();
+        for (int move : moves()) {
+            engine.playMove(engine.moveRow(move), engine.moveCol(move), engine.moveTargetRow(move), engine.moveTargetCol(move));
+        }
+        return engine.getScore();
+    }
+
+    // Grava uma sessão: escreve o cabeçalho ao abrir e acrescenta uma troca de cada vez
+    public static final class Recorder implements Closeable {
+        private final FileChannel channel;
+        private final int cols;
+        private final ByteBuffer record = ByteBuffer.allocate(5); // Uma troca (no máximo 5 bytes)
+        private final ByteBuffer counters = ByteBuffer.allocate(8); // Número de trocas e pontuação
+        private int moveCount = 0;
+
+        public Recorder(Path file, int rows, int cols, long seed, boolean safeRefill) throws IOException {
+            this.cols = cols;
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).put(VERSION).put((byte) (safeRefill ? FLAG_SAFE_REFILL : 0))
+                    .putShort((short) rows).putShort((short) cols).putLong(seed).putInt(0).putInt(0);
+            header.flip();
+            while (header.hasRemaining()) channel.write(header);
+        }
+
+        // Acrescenta uma troca (já terminada, com as cascatas resolvidas) e a pontuação depois dela
+        public void record(int r1, int c1, int r2, int c2, int score) throws IOException {
+            int first = Math.min(r1 * cols + c1, r2 * cols + c2);
+            int move = (first << 1) | (r1 == r2 ? BoardEngine.MOVE_RIGHT : BoardEngine.MOVE_DOWN);
+            record.clear();
+            while ((move & ~0x7F) != 0) {
+                record.put((byte) ((move & 0x7F) | 0x80));
+                move >>>= 7;
+            }
+            record.put((byte) move).flip();
+            while (record.hasRemaining()) channel.write(record);
+            moveCount++;
+            counters.clear();
+            counters.putInt(moveCount).putInt(score).flip();
+            while (counters.hasRemaining()) channel.write(counters, MOVES_OFFSET + counters.position());
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    // Volta a jogar todos os replays (ficheiros ou pastas) em paralelo e compara as pontuações gravadas
+    private static void verify(List<Path> inputs) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (Path input : inputs) {
+            if (Files.isDirectory(input)) {
+                try (Stream<Path> walk = Files.walk(input)) {
+                    walk.filter(p -> p.toString().endsWith(EXTENSION)).forEach(files::add);
+                }
+            } else {
+                files.add(input);
+            }
+        }
+        AtomicLong mismatches = new AtomicLong();
+        AtomicLong totalMoves = new AtomicLong();
+        long start = System.nanoTime();
+        files.parallelStream().forEach(file -> {
+            try {
+                Replay replay = open(file);
+                int score = replay.play();
+                totalMoves.addAndGet(replay.getMoveCount());
+                if (score != replay.getScore()) {
+                    mismatches.incrementAndGet();
+                    System.out.println(file + ": pontuação gravada " + replay.getScore() + ", obtida " + score);
+                }
+            } catch (IOException | RuntimeException e) {
+                mismatches.incrementAndGet();
+                System.out.println(file + ": " + e.getMessage());
+            }
+        });
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d replays (%d trocas) em %.2f s (%.0f trocas/s); %d com diferenças%n",
+                files.size(), totalMoves.get(), seconds, totalMoves.get() / seconds, mismatches.get());
+        if (mismatches.get() > 0) System.exit(1);
+    }
+
+    // Mostra um replay no tabuleiro com animações: cada troca é feita quando a anterior acaba
+    private static void show(Path file) throws IOException {
+        Replay replay = open(file);
+        if (replay.safeRefill) throw new IOException("Este replay só pode ser verificado sem janela (usa preenchimento seguro)");
+        int[] moves = replay.moves();
+        SwingUtilities.invokeLater(() -> {
+            JFrame frame = new JFrame("Bejeweled - Replay de " + file.getFileName());
+            frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+            frame.setResizable(false);
+            GameBoard board = new GameBoard(replay.rows, replay.cols, GameBoard.DEFAULT_GEM_SIZE, replay.seed);
+            frame.add(board);
+            frame.pack();
+            frame.setLocationRelativeTo(null);
+            frame.setVisible(true);
+            int[] next = {0};
+            new Timer(SHOW_STEP_MS, e -> {
+                if (board.isAnimating()) return;
+                if (next[0] == moves.length) {
+                    ((Timer) e.getSource()).stop();
+                    System.out.println("Fim do replay: pontuação gravada " + replay.score + ", obtida " + board.getScore());
+                    return;
+                }
+                int move = moves[next[0]++];
+                int row = (move >> 1) / replay.cols, col = (move >> 1) % replay.cols;
+                boolean down = (move & 1) == BoardEngine.MOVE_DOWN;
+                board.playSwap(row, col, down ? row + 1 : row, down ? col : col + 1);
+            }).start();
+        });
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length >= 2 && args[0].equals("verify")) {
+            List<Path> inputs = new ArrayList<>();
+            for (int i = 1; i < args.length; i++) inputs.add(Paths.get(args[i]));
+            verify(inputs);
+        } else if (args.length == 2 && args[0].equals("show")) {
+            show(Paths.get(args[1]));
+        } else {
+            System.err.println("Uso: java Replay verify <ficheiros ou pastas>... | java Replay show <ficheiro>");
+            System.exit(1);
+        }
+    }
+}
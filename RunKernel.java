@@ -0,0 +1,45 @@
+// Deteção de sequências de 3 gemas iguais em blocos de posições seguidas (usada pelo BoardEngine)
+// Uma sequência de 3 começa na posição i quando cells[i] == cells[i + stride] == cells[i + 2 * stride]
+// (e não está vazia). Com stride = 1 percorre-se uma linha; com stride = cols compara-se uma linha
+// inteira com as duas de baixo, ou seja, procuram-se sequências em todas as colunas ao mesmo tempo.
+// Assim as comparações são feitas sobre bytes seguidos na memória, o que permite usar instruções
+// SIMD (várias posições por instrução) com a Vector API.
+//
+// A implementação vetorial (vector/VectorRunKernel.java) usa o módulo jdk.incubator.vector, que no
+// Java 17 ainda é experimental: só é compilada à parte e só é usada se o programa arrancar com
+//   java --add-modules jdk.incubator.vector ...
+// Sem esse módulo (ou com -Dbejeweled.vector=false) o BoardEngine usa os seus ciclos simples.
+interface RunKernel {
+    // Número de posições comparadas de cada vez (abaixo disto não compensa usar esta classe)
+    int width();
+
+    // Marca em starts[i] as posições de [from, from + count) onde começa uma sequência de 3
+    // e devolve quantas são (starts tem de estar a false nesse intervalo; o chamador volta a limpá-lo)
+    int findTriples(byte[] cells, int from, int count, int stride, boolean[] starts);
+
+    // Indica se alguma sequência de 3 começa em [from, from + count)
+    boolean hasTriple(byte[] cells, int from, int count, int stride);
+
+    // Implementação vetorial se estiver disponível e ativa, ou null (ver Holder)
+    static RunKernel vectorized() {
+        return Holder.VECTORIZED;
+    }
+
+    // Carregada só no primeiro uso; a classe vetorial é procurada pelo nome para o resto do jogo
+    // compilar e correr sem o módulo jdk.incubator.vector
+    final class Holder {
+        static final RunKernel VECTORIZED = load();
+
+        private Holder() {
+        }
+
+        private static RunKernel load() {
+            if (!Boolean.parseBoolean(System.getProperty("bejeweled.vector", "true"))) return null;
+            try {
+                return (RunKernel) Class.forName("VectorRunKernel").getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                return null; // Classe não compilada ou módulo não incluído: fica a versão simples
+            }
+        }
+    }
+}
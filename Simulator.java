@@ -0,0 +1,186 @@
+// Simulador de jogos em lote (sem janela)
+// Joga muitos jogos seguidos com as mesmas regras do GameBoard (tabuleiro inicial sem combinações
+// e com jogadas, trocas resolvidas por BoardEngine.playMove, que baralha o tabuleiro quando fica sem
+// jogadas possíveis, e 10 pontos por gema), espalhando o trabalho por todos os núcleos
+// com fork/join. Cada jogo tem a sua própria semente, derivada da semente principal e do número
+// do jogo, por isso os resultados são sempre os mesmos, seja qual for o número de núcleos.
+//
+// Como executar:
+//   java Simulator --games 1000000 --seed 42 --moves 50 --rows 8 --cols 8
+// Com "--safe-refill true", as gemas novas nunca completam uma sequência de 3.
+// Com "--search-depth N" (N > 0), as trocas são escolhidas pelo AutoPlayer em vez de ao acaso.
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+public class Simulator {
+    private static final int GAMES_PER_TASK = 256; // Abaixo disto, uma tarefa joga os jogos sem dividir
+    private static final int SEARCH_SAMPLES = 4; // Amostras do preenchimento usadas pelo AutoPlayer
+    private static final int SEARCH_TABLE_BITS = 16; // Tabela de transposição de cada thread (64K entradas)
+
+    // Parâmetros de uma simulação
+    private final int rows;
+    private final int cols;
+    private final int movesPerGame; // Número máximo de jogadas por jogo
+    private final long seed;
+    private final boolean safeRefill; // Ver BoardEngine.setSafeRefill
+    private final int searchDepth; // 0: jogadas ao acaso; senão, profundidade do AutoPlayer
+    // Um AutoPlayer (e a sua tabela) por thread: os jogos já correm em paralelo, por isso a procura não
+    private final ThreadLocal<AutoPlayer> players;
+
+    public Simulator(int rows, int cols, int movesPerGame, long seed, boolean safeRefill) {
+        this(rows, cols, movesPerGame, seed, safeRefill, 0);
+    }
+
+    public Simulator(int rows, int cols, int movesPerGame, long seed, boolean safeRefill, int searchDepth) {
+        this.rows = rows;
+        this.cols = cols;
+        this.movesPerGame = movesPerGame;
+        this.seed = seed;
+        this.safeRefill = safeRefill;
+        this.searchDepth = searchDepth;
+        this.players = ThreadLocal.withInitial(() ->
+                new AutoPlayer(rows, cols, Math.max(1, searchDepth), SEARCH_SAMPLES, SEARCH_TABLE_BITS, false));
+    }
+
+    // Resultados agregados de vários jogos
+    public static final class Stats {
+        long games;
+        long moves;
+        long shuffledGames; // Jogos em que o tabuleiro ficou sem jogadas e foi baralhado (pelo menos uma vez)
+        long scoreSum;
+        double scoreSquares; // Soma dos quadrados (para o desvio padrão)
+        int scoreMin = Integer.MAX_VALUE;
+        int scoreMax = Integer.MIN_VALUE;
+
+        void add(int score, int moves, boolean shuffled) {
+            games++;
+            this.moves += moves;
+            if (shuffled) shuffledGames++;
+            scoreSum += score;
+            scoreSquares += (double) score * score;
+            scoreMin = Math.min(scoreMin, score);
+            scoreMax = Math.max(scoreMax, score);
+        }
+
+        void merge(Stats other) {
+            games += other.games;
+            moves += other.moves;
+            shuffledGames += other.shuffledGames;
+            scoreSum += other.scoreSum;
+            scoreSquares += other.scoreSquares;
+            scoreMin = Math.min(scoreMin, other.scoreMin);
+            scoreMax = Math.max(scoreMax, other.scoreMax);
+        }
+
+        public long getGames() {
+            return games;
+        }
+
+        public double meanScore() {
+            return games == 0 ? 0 : (double) scoreSum / games;
+        }
+
+        public double stdDevScore() {
+            if (games == 0) return 0;
+            double mean = meanScore();
+            return Math.sqrt(Math.max(0, scoreSquares / games - mean * mean));
+        }
+    }
+
+    // Tarefa fork/join que joga os jogos [from, to)
+    private final class GamesTask extends RecursiveTask<Stats> {
+        private final long from, to;
+
+        GamesTask(long from, long to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Stats compute() {
+            if (to - from <= GAMES_PER_TASK) {
+                Stats stats = new Stats();
+                for (long game = from; game < to; game++) {
+                    playGame(game, stats);
+                }
+                return stats;
+            }
+            long mid = (from + to) >>> 1;
+            GamesTask left = new GamesTask(from, mid);
+            left.fork();
+            Stats stats = new GamesTask(mid, to).compute();
+            stats.merge(left.join());
+            return stats;
+        }
+    }
+
+    // Joga os jogos [0, games) em todos os núcleos e devolve os resultados agregados
+    public Stats run(long games) {
+        return ForkJoinPool.commonPool().invoke(new GamesTask(0, games));
+    }
+
+    // Joga um jogo completo: em cada jogada escolhe ao acaso uma das trocas válidas
+    // (ou a troca do AutoPlayer, se searchDepth > 0)
+    // Como no GameBoard, o jogo nunca fica sem jogadas: playMove baralha o tabuleiro quando isso acontece
+    private void playGame(long game, Stats stats) {
+        SplittableRandom random = new SplittableRandom(mix64(seed + game));
+        BoardEngine engine = new BoardEngine(rows, cols, random);
+        engine.setSafeRefill(safeRefill);
+        engine.initBoard(true);
+        int[] candidates = new int[rows * cols * 2]; // Trocas válidas (ver BoardEngine.findValidMoves)
+        CascadeLog log = new CascadeLog(); // Só para saber se o tabuleiro foi baralhado
+        int moves = 0;
+        boolean shuffled = false;
+        while (moves < movesPerGame) {
+            int count = engine.findValidMoves(candidates);
+            int move = searchDepth > 0 ? players.get().chooseMove(engine) : candidates[random.nextInt(count)];
+            engine.playMove(engine.moveRow(move), engine.moveCol(move), engine.moveTargetRow(move),
+                    engine.moveTargetCol(move), log);
+            if (log.next(CascadeLog.SHUFFLE, 0) < log.size()) shuffled = true;
+            moves++;
+        }
+        stats.add(engine.getScore(), moves, shuffled);
+    }
+
+    // Mistura os bits de um número (SplitMix64), para sementes vizinhas darem sequências independentes
+    static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    public static void main(String[] args) {
+        long games = 100_000;
+        long seed = 42;
+        int moves = 50, rows = 8, cols = 8;
+        boolean safeRefill = false;
+        int searchDepth = 0;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--games": games = Long.parseLong(value); break;
+                case "--seed": seed = Long.parseLong(value); break;
+                case "--moves": moves = Integer.parseInt(value); break;
+                case "--rows": rows = Integer.parseInt(value); break;
+                case "--cols": cols = Integer.parseInt(value); break;
+                case "--safe-refill": safeRefill = Boolean.parseBoolean(value); break;
+                case "--search-depth": searchDepth = Integer.parseInt(value); break;
+                default:
+                    System.err.println("Opção desconhecida: " + args[i]);
+                    System.exit(1);
+            }
+        }
+        Simulator simulator = new Simulator(rows, cols, moves, seed, safeRefill, searchDepth);
+        System.out.printf("A simular %d jogos de %dx%d (até %d jogadas, semente %d) em %d núcleos...%n",
+                games, rows, cols, moves, seed, ForkJoinPool.commonPool().getParallelism());
+        long start = System.nanoTime();
+        Stats stats = simulator.run(games);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Jogos: %d em %.2f s (%.0f jogos/s)%n", stats.games, seconds, stats.games / seconds);
+        System.out.printf("Pontuação: média %.1f, desvio padrão %.1f, mínimo %d, máximo %d%n",
+                stats.meanScore(), stats.stdDevScore(), stats.scoreMin, stats.scoreMax);
+        System.out.printf("Jogadas por jogo: %.2f; jogos com o tabuleiro baralhado: %d (%.2f%%)%n",
+                (double) stats.moves / stats.games, stats.shuffledGames, 100.0 * stats.shuffledGames / stats.games);
+    }
+}
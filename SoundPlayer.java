@@ -0,0 +1,94 @@
+// Subsistema de som do jogo
+// Cada ficheiro wav é lido e descodificado uma única vez (pelo Assets, a partir do classpath),
+// e fica associado a um pequeno conjunto (pool) de Clips já abertos que são reutilizados.
+// Todo o trabalho de áudio (abrir e tocar) corre numa thread própria, para não bloquear a thread do Swing.
+import javax.sound.sampled.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public final class SoundPlayer {
+    public static final String SWAP = "sounds/swap.wav"; // Som da troca de gemas
+    public static final String EXPLOSION = "sounds/explosion.wav"; // Som da explosão
+
+    private final int clipsPerSound; // Quantos Clips há por som (quantas vezes pode tocar ao mesmo tempo)
+    // Pools de Clips por ficheiro; só é acedido a partir da thread de áudio
+    private final Map<String, Clip[]> pools = new HashMap<>();
+    private final Map<String, Integer> next = new HashMap<>(); // Próximo Clip a usar em cada pool
+    private final ExecutorService audioThread = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "audio");
+        t.setDaemon(true); // Não impede o programa de terminar
+        return t;
+    });
+
+    public SoundPlayer(int clipsPerSound) {
+        this.clipsPerSound = clipsPerSound;
+    }
+
+    // Carrega um ficheiro wav em segundo plano (só da primeira vez)
+    public void load(String filename) {
+        audioThread.execute(() -> pool(filename));
+    }
+
+    // Toca um som em segundo plano; se ainda não estiver carregado, é carregado agora
+    public void play(String filename) {
+        audioThread.execute(() -> {
+            Clip[] clips = pool(filename);
+            if (clips.length == 0) return;
+            // Usa os Clips à vez; se o escolhido ainda estiver a tocar, recomeça-o do início
+            int i = next.get(filename);
+            next.put(filename, (i + 1) % clips.length);
+            Clip clip = clips[i];
+            clip.stop();
+            clip.setFramePosition(0);
+            clip.start();
+        });
+    }
+
+    // Fecha todos os Clips e termina a thread de áudio
+    public void close() {
+        audioThread.execute(() -> {
+            for (Clip[] clips : pools.values()) {
+                for (Clip clip : clips) clip.close();
+            }
+            pools.clear();
+        });
+        audioThread.shutdown();
+    }
+
+    // Devolve o pool de Clips do ficheiro, criando-o da primeira vez
+    // Em caso de erro fica guardado um pool vazio, para não voltar a tentar em cada jogada
+    private Clip[] pool(String filename) {
+        Clip[] clips = pools.get(filename);
+        if (clips != null) return clips;
+        clips = new Clip[0];
+        try {
+            // O carregamento é medido (evento JFR e GameMetrics), mas corre sempre na thread de áudio
+            GameEvents.SoundLoad event = new GameEvents.SoundLoad();
+            event.begin();
+            long start = System.nanoTime();
+            Assets.Sound sound = Assets.sound(filename).join(); // Normalmente já está descodificado
+            if (sound != null) {
+                clips = new Clip[clipsPerSound];
+                for (int i = 0; i < clips.length; i++) {
+                    clips[i] = AudioSystem.getClip();
+                    clips[i].open(sound.format, sound.data, 0, sound.data.length);
+                }
+                event.file = filename;
+                event.clips = clips.length;
+                event.commit();
+                GameMetrics.soundLoad(System.nanoTime() - start);
+            }
+        } catch (Exception e) {
+            System.err.println("Erro ao carregar som: " + filename + " - " + e.getMessage());
+            for (Clip clip : clips) {
+                if (clip != null) clip.close(); // Liberta os Clips que chegaram a ser abertos
+            }
+            clips = new Clip[0];
+        }
+        pools.put(filename, clips);
+        next.put(filename, 0);
+        return clips;
+    }
+}
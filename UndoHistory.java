@@ -0,0 +1,43 @@
+// Histórico para desfazer e refazer jogadas (modo de treino)
+// Guarda fotografias compactas do tabuleiro (BoardSnapshot), por isso guardar uma antes de cada
+// jogada custa poucos bytes. Só as últimas "capacity" jogadas podem ser desfeitas.
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+public final class UndoHistory {
+    private final int capacity;
+    private final Deque<BoardSnapshot> undo = new ArrayDeque<>();
+    private final Deque<BoardSnapshot> redo = new ArrayDeque<>();
+
+    public UndoHistory(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("A capacidade tem de ser positiva");
+        this.capacity = capacity;
+    }
+
+    // Guarda o estado antes de uma jogada (e esquece as jogadas que tinham sido desfeitas)
+    public void record(BoardSnapshot before) {
+        pushUndo(before);
+        redo.clear();
+    }
+
+    private void pushUndo(BoardSnapshot snapshot) {
+        if (undo.size() == capacity) undo.removeLast(); // Esquece a jogada mais antiga
+        undo.push(snapshot);
+    }
+
+    // Volta ao estado antes da última jogada; devolve false se não houver nada para desfazer
+    public boolean undo(BoardEngine engine) {
+        if (undo.isEmpty()) return false;
+        redo.push(engine.snapshot());
+        engine.restore(undo.pop());
+        return true;
+    }
+
+    // Refaz a última jogada desfeita; devolve false se não houver nada para refazer
+    public boolean redo(BoardEngine engine) {
+        if (redo.isEmpty()) return false;
+        pushUndo(engine.snapshot());
+        engine.restore(redo.pop());
+        return true;
+    }
+}
@@ -0,0 +1,83 @@
+// Ligação entre os benchmarks (pacote bejeweled.bench) e as classes do jogo (pacote por omissão)
+import bejeweled.bench.BoardOps;
+
+import java.util.SplittableRandom;
+
+public class BoardBenchAdapter implements BoardOps {
+    private static final double HOLE_RATE = 0.15; // Fração de posições esvaziadas no tabuleiro com buracos
+
+    private BoardEngine engine;
+    private BoardEngine matched; // Tabuleiro aleatório, com combinações
+    private BoardEngine holes; // Tabuleiro com as combinações e algumas posições removidas
+    private BoardEngine stable; // Tabuleiro sem combinações, como depois de uma cascata
+    private boolean[] marks;
+    private int[] moves;
+    private GameBoard view;
+
+    public void setUp(int rows, int cols, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        engine = new BoardEngine(rows, cols, random);
+        marks = new boolean[rows * cols];
+        moves = new int[rows * cols * 2];
+        // Um tabuleiro vazio preenchido ao acaso tem combinações (não passa pelo initBoard)
+        stable = new BoardEngine(rows, cols, random);
+        stable.initBoard();
+        matched = new BoardEngine(rows, cols, random);
+        matched.fillEmptySpaces();
+        holes = new BoardEngine(rows, cols, random);
+        holes.copyFrom(matched);
+        holes.findMatches(marks);
+        holes.removeMarked(marks);
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                if (random.nextDouble() < HOLE_RATE) holes.clear(row, col);
+            }
+        }
+    }
+
+    public void setVectorized(boolean vectorized) {
+        engine.setVectorized(vectorized);
+        stable.setVectorized(vectorized);
+    }
+
+    public void initBoard() {
+        engine.initBoard();
+    }
+
+    public void restoreMatched() {
+        engine.copyFrom(matched);
+    }
+
+    public void restoreHoles() {
+        engine.copyFrom(holes);
+    }
+
+    public int findMatches() {
+        return engine.findMatches(marks);
+    }
+
+    public int findValidMoves() {
+        return stable.findValidMoves(moves);
+    }
+
+    public void applyGravity() {
+        engine.applyGravity();
+    }
+
+    public void fillEmptySpaces() {
+        engine.fillEmptySpaces();
+    }
+
+    public int resolveCascades() {
+        return engine.resolveCascades();
+    }
+
+    public void setUpView(int rows, int cols, long seed) {
+        view = new GameBoard(rows, cols, GameBoard.DEFAULT_GEM_SIZE, seed);
+        GemIcons.atlas(GameBoard.DEFAULT_GEM_SIZE).join(); // Mede o desenho das gemas, não dos círculos provisórios
+    }
+
+    public void updateBoard() {
+        view.updateBoard();
+    }
+}
@@ -0,0 +1,81 @@
+package bejeweled.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Benchmarks das operações principais do tabuleiro
+// Os benchmarks que alteram o tabuleiro começam por repor um tabuleiro de partida (uma cópia
+// de array); o custo dessa cópia é medido à parte em restoreMatched e restoreHoles.
+// Com vectorized=true as combinações são procuradas com a Vector API (ver RunKernel.java), se a
+// largura do tabuleiro chegar para um vetor; caso contrário o resultado é igual ao de false.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class BoardBenchmark {
+    @Param({"8", "16", "64", "256"})
+    public int size; // O tabuleiro tem size x size posições
+
+    @Param({"1", "42"})
+    public long seed;
+
+    @Param({"false", "true"})
+    public boolean vectorized;
+
+    private BoardOps ops;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        ops = (BoardOps) Class.forName("BoardBenchAdapter").getDeclaredConstructor().newInstance();
+        ops.setUp(size, size, seed);
+        ops.setVectorized(vectorized);
+    }
+
+    @Benchmark
+    public void initBoard() {
+        ops.initBoard();
+    }
+
+    @Benchmark
+    public void restoreMatched() {
+        ops.restoreMatched();
+    }
+
+    @Benchmark
+    public void restoreHoles() {
+        ops.restoreHoles();
+    }
+
+    @Benchmark
+    public int findMatches() {
+        ops.restoreMatched();
+        return ops.findMatches();
+    }
+
+    // Sobre um tabuleiro sem combinações, como depois de uma cascata
+    @Benchmark
+    public int findValidMoves() {
+        return ops.findValidMoves();
+    }
+
+    @Benchmark
+    public void applyGravity() {
+        ops.restoreHoles();
+        ops.applyGravity();
+    }
+
+    @Benchmark
+    public void fillEmptySpaces() {
+        ops.restoreHoles();
+        ops.fillEmptySpaces();
+    }
+
+    @Benchmark
+    public int resolveCascades() {
+        ops.restoreMatched();
+        return ops.resolveCascades();
+    }
+}
@@ -0,0 +1,42 @@
+package bejeweled.bench;
+
+// Operações do jogo medidas pelos benchmarks
+// As classes do jogo estão no pacote por omissão, que não pode ser importado a partir de um
+// pacote com nome (e o JMH exige que os benchmarks tenham pacote). Por isso os benchmarks
+// usam esta interface, implementada por BoardBenchAdapter no pacote por omissão.
+public interface BoardOps {
+    // Prepara um motor rows x cols com a semente indicada e os tabuleiros de partida
+    void setUp(int rows, int cols, long seed);
+
+    // Liga ou desliga a deteção vetorial das combinações (BoardEngine.setVectorized)
+    void setVectorized(boolean vectorized);
+
+    // Inicializa o tabuleiro sem combinações
+    void initBoard();
+
+    // Repõe o tabuleiro aleatório (com combinações) preparado em setUp
+    void restoreMatched();
+
+    // Repõe o tabuleiro com buracos (gemas removidas) preparado em setUp
+    void restoreHoles();
+
+    // Deteção de combinações; devolve o número de posições marcadas
+    int findMatches();
+
+    // Gerador de jogadas válidas sobre um tabuleiro sem combinações; devolve quantas encontrou
+    int findValidMoves();
+
+    void applyGravity();
+
+    void fillEmptySpaces();
+
+    // Resolve toda a cascata; devolve o número de gemas removidas
+    int resolveCascades();
+
+    // Cria o painel do jogo (sem janela) com um tabuleiro rows x cols e a semente indicada,
+    // e espera que as imagens das gemas estejam prontas, para medir updateBoard()
+    void setUpView(int rows, int cols, long seed);
+
+    // Atualiza os ícones de todas as posições do painel
+    void updateBoard();
+}
@@ -0,0 +1,35 @@
+package bejeweled.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Benchmark do updateBoard() do painel Swing (sem janela)
+// Tal como em BoardBenchmark, o tamanho e a semente são parâmetros, por isso os resultados
+// repetem-se e podem ser comparados. O painel nunca é mostrado: não tem timers nem sons.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class ViewBenchmark {
+    @Param({"8", "16", "64"})
+    public int size; // O tabuleiro tem size x size posições
+
+    @Param({"1", "42"})
+    public long seed;
+
+    private BoardOps ops;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        ops = (BoardOps) Class.forName("BoardBenchAdapter").getDeclaredConstructor().newInstance();
+        ops.setUpView(size, size, seed);
+    }
+
+    @Benchmark
+    public void updateBoard() {
+        ops.updateBoard();
+    }
+}
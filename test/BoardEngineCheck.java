@@ -0,0 +1,106 @@
+// Verificação da deteção de combinações do BoardEngine (sem framework de testes: é um programa simples)
+// O BoardEngine só volta a verificar as linhas e colunas que mudaram desde a última procura (linhas e
+// colunas "sujas"). Aqui, em vários tabuleiros ao acaso, muda-se algumas gemas de cada vez e compara-se
+// findMatches e hasCombination de dois motores que vão acumulando esse estado (um com os ciclos simples e
+// outro com a deteção vetorial, ver RunKernel) com uma procura completa, com os ciclos simples, num motor
+// acabado de restaurar (em que está tudo sujo). Pelo meio, as combinações são removidas e as gemas
+// caem, como numa cascata, para as linhas sujas virem também da gravidade.
+// Os tabuleiros mais largos do que um vetor usam mesmo a versão vetorial, por isso a verificação precisa
+// do módulo da Vector API.
+//
+// Como executar: gradle check  (ou, depois de compilar:
+//   java --add-modules jdk.incubator.vector -cp <classes> BoardEngineCheck [tabuleiros])
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+public class BoardEngineCheck {
+    private static final int[][] SIZES = {{8, 8}, {3, 3}, {5, 17}, {16, 16}, {9, 64}, {40, 100}, {6, 257}};
+    private static final int STEPS = 300; // Alterações em cada tabuleiro
+
+    public static void main(String[] args) {
+        if (RunKernel.vectorized() == null) {
+            System.out.println("BoardEngineCheck: a Vector API não está disponível (falta --add-modules jdk.incubator.vector)");
+            System.exit(1);
+        }
+        int boards = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        int mismatches = 0;
+        for (int[] size : SIZES) {
+            for (int seed = 1; seed <= boards; seed++) {
+                mismatches += check(size[0], size[1], seed);
+            }
+        }
+        System.out.println("BoardEngineCheck: " + boards * SIZES.length + " tabuleiros, " + mismatches + " diferenças");
+        if (mismatches > 0) System.exit(1);
+    }
+
+    // Compara os motores com linhas/colunas sujas com a procura completa; devolve o número de diferenças
+    private static int check(int rows, int cols, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        BoardEngine scalar = new BoardEngine(rows, cols, new SplittableRandom(seed));
+        scalar.setVectorized(false);
+        scalar.initBoard();
+        BoardEngine vector = new BoardEngine(rows, cols, new SplittableRandom(seed));
+        vector.setVectorized(true); // Fica com os ciclos simples se as linhas forem mais curtas do que um vetor
+        vector.restore(scalar.snapshot());
+        BoardEngine full = new BoardEngine(rows, cols, new SplittableRandom(seed));
+        full.setVectorized(false);
+        BoardEngine[] engines = {scalar, vector};
+        String[] names = {"simples", "vetorial"};
+        boolean[] marks = new boolean[rows * cols];
+        boolean[] expected = new boolean[rows * cols];
+        GemType[] types = GemType.values();
+        int mismatches = 0;
+        for (int step = 0; step < STEPS; step++) {
+            // Muda algumas gemas (as mesmas nos dois motores); metade das vezes copia uma vizinha,
+            // para haver muitas sequências
+            int changes = 1 + random.nextInt(4);
+            for (int k = 0; k < changes; k++) {
+                int row = random.nextInt(rows), col = random.nextInt(cols);
+                int choice = random.nextInt(10);
+                GemType type;
+                if (choice == 0) {
+                    type = null; // Posição vazia
+                } else if (choice < 5 && col > 0) {
+                    type = scalar.get(row, col - 1);
+                } else if (choice < 8 && row > 0) {
+                    type = scalar.get(row - 1, col);
+                } else {
+                    type = types[random.nextInt(types.length)];
+                }
+                for (BoardEngine engine : engines) engine.set(row, col, type);
+            }
+            full.restore(scalar.snapshot());
+            boolean expectedAny = full.hasCombination();
+            full.restore(scalar.snapshot());
+            int expectedCount = full.findMatches(expected);
+            // Às vezes hasCombination corre antes de findMatches (também limpa linhas e colunas sujas)
+            boolean hasFirst = random.nextBoolean();
+            for (int e = 0; e < engines.length; e++) {
+                String where = rows + "x" + cols + " semente " + seed + ", passo " + step + ", " + names[e] + ": ";
+                if (hasFirst && engines[e].hasCombination() != expectedAny) {
+                    System.out.println(where + "hasCombination diferente");
+                    mismatches++;
+                }
+                int count = engines[e].findMatches(marks);
+                if (count != expectedCount || !Arrays.equals(marks, expected)) {
+                    System.out.println(where + "findMatches diferente (" + count + " em vez de " + expectedCount + ")");
+                    mismatches++;
+                }
+                if (engines[e].hasCombination() != expectedAny) {
+                    System.out.println(where + "hasCombination diferente");
+                    mismatches++;
+                }
+            }
+            // Às vezes remove as combinações e deixa as gemas cair, como numa cascata
+            if (expectedCount > 0 && random.nextInt(3) == 0) {
+                for (BoardEngine engine : engines) {
+                    for (int i = 0; i < expected.length; i++) {
+                        if (expected[i]) engine.clear(i / cols, i % cols);
+                    }
+                    engine.applyGravity();
+                }
+            }
+        }
+        return mismatches;
+    }
+}
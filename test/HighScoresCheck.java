@@ -0,0 +1,118 @@
+// Verificação da tabela de recordes (sem framework de testes: é um programa simples)
+// Regista jogos ao acaso numa tabela temporária e compara os índices (os melhores de todos e de cada
+// jogador) com uma ordenação de todos os jogos, em várias fases: logo a seguir a registar, depois de
+// voltar a abrir o ficheiro, depois de um registo incompleto no fim e antes e depois de compactar.
+//
+// Como executar: gradle check  (ou, depois de compilar: java -cp <classes> HighScoresCheck [jogos])
+// Com mais de 100000 jogos a tabela também se compacta sozinha durante os registos.
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+public class HighScoresCheck {
+    public static void main(String[] args) throws IOException {
+        int mismatches = check(args.length > 0 ? Integer.parseInt(args[0]) : 20_000);
+        if (mismatches > 0) System.exit(1);
+    }
+
+    // Regista jogos ao acaso numa tabela temporária (com índices pequenos, para haver muitas trocas) e
+    // compara as consultas com o resultado de ordenar todos os jogos: logo a seguir a registar, depois de
+    // voltar a abrir, depois de um registo incompleto no fim e depois de compactar. Devolve os erros.
+    private static int check(int games) throws IOException {
+        final int topSize = 20, playerTopSize = 5, playerCount = 50;
+        Path dir = Files.createTempDirectory("highscores");
+        Path file = dir.resolve("check.bjh");
+        SplittableRandom random = new SplittableRandom(1);
+        int[] allScores = new int[games * 2];
+        String[] allPlayers = new String[games * 2];
+        int played = 0;
+        int mismatches = 0;
+        try {
+            HighScores scores = HighScores.open(file, topSize, playerTopSize);
+            // Poucas pontuações diferentes, para haver empates (ganha quem as conseguiu primeiro)
+            // A semente de cada jogo é o seu número, para o identificar nas consultas
+            for (; played < games; played++) {
+                allScores[played] = random.nextInt(1000) * BoardEngine.POINTS_PER_GEM;
+                allPlayers[played] = "jogador" + random.nextInt(playerCount);
+                scores.add(allScores[played], played, allPlayers[played]);
+            }
+            mismatches += compare("registados", scores, allScores, allPlayers, played, topSize, playerTopSize);
+            scores.close();
+            scores = HighScores.open(file, topSize, playerTopSize);
+            mismatches += compare("reabertos", scores, allScores, allPlayers, played, topSize, playerTopSize);
+            long stored = scores.size(); // Menos do que played se a tabela já se compactou sozinha
+            scores.close();
+            // Registo incompleto no fim: tem de ser descartado ao abrir
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                channel.write(ByteBuffer.allocate(HighScores.RECORD_BYTES / 2));
+            }
+            scores = HighScores.open(file, topSize, playerTopSize);
+            if (scores.size() != stored || Files.size(file) != HighScores.HEADER_BYTES + stored * HighScores.RECORD_BYTES) {
+                System.out.println("registo incompleto: " + scores.size() + " jogos, " + Files.size(file) + " bytes");
+                mismatches++;
+            }
+            mismatches += compare("registo incompleto", scores, allScores, allPlayers, played, topSize, playerTopSize);
+            scores.compact();
+            mismatches += compare("compactados", scores, allScores, allPlayers, played, topSize, playerTopSize);
+            for (; played < games * 2; played++) {
+                allScores[played] = random.nextInt(1000) * BoardEngine.POINTS_PER_GEM;
+                allPlayers[played] = "jogador" + random.nextInt(playerCount);
+                scores.add(allScores[played], played, allPlayers[played]);
+            }
+            mismatches += compare("depois de compactar", scores, allScores, allPlayers, played, topSize, playerTopSize);
+            scores.close();
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(dir);
+        }
+        System.out.println("HighScoresCheck: " + played + " jogos de " + playerCount + " jogadores: " + mismatches + " diferenças");
+        return mismatches;
+    }
+
+    // Compara a tabela com os jogos [0, played) ordenados por força bruta; devolve o número de diferenças
+    private static int compare(String stage, HighScores scores, int[] allScores, String[] allPlayers, int played,
+                               int topSize, int playerTopSize) {
+        Integer[] order = new Integer[played];
+        for (int i = 0; i < played; i++) order[i] = i;
+        Arrays.sort(order, Comparator.comparingInt((Integer i) -> -allScores[i]).thenComparingInt(i -> i));
+        int mismatches = 0;
+        List<Long> expected = new ArrayList<>();
+        for (int i = 0; i < Math.min(topSize, played); i++) expected.add((long) order[i]);
+        if (!expected.equals(seeds(scores.top(topSize)))) {
+            System.out.println(stage + ": top diferente");
+            mismatches++;
+        }
+        Map<String, List<Long>> byPlayer = new HashMap<>();
+        for (Integer i : order) {
+            List<Long> mine = byPlayer.computeIfAbsent(allPlayers[i], p -> new ArrayList<>());
+            if (mine.size() < playerTopSize) mine.add((long) i);
+        }
+        for (Map.Entry<String, List<Long>> e : byPlayer.entrySet()) {
+            if (!e.getValue().equals(seeds(scores.top(e.getKey(), playerTopSize)))) {
+                System.out.println(stage + ": top de " + e.getKey() + " diferente");
+                mismatches++;
+            }
+        }
+        if (scores.playerCount() != byPlayer.size()) {
+            System.out.println(stage + ": " + scores.playerCount() + " jogadores em vez de " + byPlayer.size());
+            mismatches++;
+        }
+        return mismatches;
+    }
+
+    private static List<Long> seeds(List<HighScores.Entry> entries) {
+        List<Long> seeds = new ArrayList<>();
+        for (HighScores.Entry e : entries) seeds.add(e.getSeed());
+        return seeds;
+    }
+}
@@ -0,0 +1,32 @@
+// Enche uma tabela de recordes com jogos simulados, para medir o tempo de registar, abrir e compactar
+// Pontuações e jogadores (1000 jogadores) ao acaso; vários destes programas podem correr ao mesmo tempo
+// sobre o mesmo ficheiro (ver HighScores).
+//
+// Como executar (depois de compilar):  java -cp <classes> HighScoresFill recordes.bjh 1000000
+// e depois, por exemplo:               java HighScores top recordes.bjh 10
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.SplittableRandom;
+
+public class HighScoresFill {
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Uso: java HighScoresFill <ficheiro> <jogos>");
+            System.exit(1);
+        }
+        int games = Integer.parseInt(args[1]);
+        long start = System.nanoTime();
+        try (HighScores scores = HighScores.open(Paths.get(args[0]))) {
+            System.out.printf("%d jogos de %d jogadores lidos em %.1f ms%n", scores.size(), scores.playerCount(),
+                    (System.nanoTime() - start) / 1e6);
+            SplittableRandom random = new SplittableRandom();
+            start = System.nanoTime();
+            for (int i = 0; i < games; i++) {
+                scores.add(random.nextInt(10_000) * BoardEngine.POINTS_PER_GEM, random.nextLong(),
+                        "jogador" + random.nextInt(1000));
+            }
+            System.out.printf("%d jogos registados em %.1f ms (o ficheiro tem agora %d)%n", games,
+                    (System.nanoTime() - start) / 1e6, scores.size());
+        }
+    }
+}
@@ -0,0 +1,68 @@
+// Deteção de sequências de 3 gemas com a Vector API (ver RunKernel)
+// Compara width() posições de cada vez: carrega três vetores de bytes (posições i, i + stride e
+// i + 2 * stride), compara-os e obtém uma máscara com as posições onde começa uma sequência.
+// O fim de cada bloco (menos de width() posições) é tratado com um ciclo simples.
+//
+// Usa o módulo experimental jdk.incubator.vector, por isso é compilada à parte:
+//   javac --add-modules jdk.incubator.vector -cp . -d . vector/VectorRunKernel.java
+// e só é carregada (por RunKernel.vectorized) quando o programa arranca com --add-modules jdk.incubator.vector
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+final class VectorRunKernel implements RunKernel {
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED; // A maior largura que o processador suporta
+
+    @Override
+    public int width() {
+        return SPECIES.length();
+    }
+
+    // Máscara das posições i, i+1, ... onde começa uma sequência de 3
+    private static VectorMask<Byte> triples(byte[] cells, int i, int stride) {
+        ByteVector a = ByteVector.fromArray(SPECIES, cells, i);
+        ByteVector b = ByteVector.fromArray(SPECIES, cells, i + stride);
+        ByteVector c = ByteVector.fromArray(SPECIES, cells, i + 2 * stride);
+        return a.compare(VectorOperators.EQ, b)
+                .and(a.compare(VectorOperators.EQ, c))
+                .and(a.compare(VectorOperators.NE, BoardEngine.EMPTY));
+    }
+
+    private static boolean isTriple(byte[] cells, int i, int stride) {
+        byte v = cells[i];
+        return v != BoardEngine.EMPTY && v == cells[i + stride] && v == cells[i + 2 * stride];
+    }
+
+    @Override
+    public int findTriples(byte[] cells, int from, int count, int stride, boolean[] starts) {
+        int found = 0;
+        int i = from;
+        for (int bound = from + SPECIES.loopBound(count); i < bound; i += SPECIES.length()) {
+            VectorMask<Byte> mask = triples(cells, i, stride);
+            if (mask.anyTrue()) { // Quase sempre falso: só se escreve em starts quando há sequências
+                mask.intoArray(starts, i);
+                found += mask.trueCount();
+            }
+        }
+        for (int end = from + count; i < end; i++) {
+            if (isTriple(cells, i, stride)) {
+                starts[i] = true;
+                found++;
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public boolean hasTriple(byte[] cells, int from, int count, int stride) {
+        int i = from;
+        for (int bound = from + SPECIES.loopBound(count); i < bound; i += SPECIES.length()) {
+            if (triples(cells, i, stride).anyTrue()) return true;
+        }
+        for (int end = from + count; i < end; i++) {
+            if (isTriple(cells, i, stride)) return true;
+        }
+        return false;
+    }
+}